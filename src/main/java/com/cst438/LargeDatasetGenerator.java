@@ -0,0 +1,226 @@
+package com.cst438;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Loads a large synthetic campus into the schema.sql tables when the largedata
+ * profile is active.  The data is generated from a fixed seed so every run
+ * produces the same rows.  Everything is added to the Fall 2025 term of data.sql.
+ *
+ *   instructorN@csumb.edu and studentN@csumb.edu, all with the same password
+ *   sections spread round robin over the instructors
+ *   each student enrolled in enrollments-per-student distinct sections
+ *   assignments-per-section assignments in every section
+ *   a graded score for every assignment of every enrollment
+ *
+ * Rows are written with JDBC batch inserts.  Generated ids start above the ids used by
+ * data.sql and the id sequences are restarted after the load.
+ */
+@Component
+@Profile("largedata")
+public class LargeDatasetGenerator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LargeDatasetGenerator.class);
+
+    private static final int TERM_ID = 10;
+    private static final int FIRST_USER_ID = 10_000;
+    private static final int FIRST_SECTION_NO = 10_000;
+    private static final int FIRST_ENROLLMENT_ID = 1_000_000;
+    private static final int FIRST_ASSIGNMENT_ID = 1_000_000;
+    private static final int FIRST_GRADE_ID = 10_000_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] GRADES = {"A", "A-", "B+", "B", "B-", "C+", "C", "D", "F"};
+
+    private final JdbcTemplate jdbc;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final long seed;
+    private final int students;
+    private final int instructors;
+    private final int sections;
+    private final int enrollmentsPerStudent;
+    private final int assignmentsPerSection;
+    private final String password;
+
+    public LargeDatasetGenerator(
+            JdbcTemplate jdbc,
+            BCryptPasswordEncoder passwordEncoder,
+            @Value("${gradebook.largedata.seed:438}") long seed,
+            @Value("${gradebook.largedata.students:50000}") int students,
+            @Value("${gradebook.largedata.instructors:1000}") int instructors,
+            @Value("${gradebook.largedata.sections:3000}") int sections,
+            @Value("${gradebook.largedata.enrollments-per-student:4}") int enrollmentsPerStudent,
+            @Value("${gradebook.largedata.assignments-per-section:40}") int assignmentsPerSection,
+            @Value("${gradebook.largedata.password:password}") String password) {
+        this.jdbc = jdbc;
+        this.passwordEncoder = passwordEncoder;
+        this.seed = seed;
+        this.students = students;
+        this.instructors = instructors;
+        this.sections = sections;
+        this.enrollmentsPerStudent = Math.min(enrollmentsPerStudent, sections);
+        this.assignmentsPerSection = assignmentsPerSection;
+        this.password = password;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        Random random = new Random(seed);
+        insertUsers();
+        int courses = insertCourses();
+        insertSections(courses);
+        List<List<Integer>> roster = insertEnrollments(random);
+        insertAssignmentsAndGrades(roster, random);
+        jdbc.execute("alter sequence assignment_seq restart with " + (FIRST_ASSIGNMENT_ID + sections * assignmentsPerSection));
+        jdbc.execute("alter sequence grade_seq restart with " + (FIRST_GRADE_ID + gradeCount(roster)));
+        log.info("largedata: {} students, {} instructors, {} sections, {} enrollments, {} assignments, {} grades in {} ms",
+                students, instructors, sections, (long) students * enrollmentsPerStudent,
+                (long) sections * assignmentsPerSection, gradeCount(roster), System.currentTimeMillis() - start);
+    }
+
+    private void insertUsers() {
+        // one BCrypt hash shared by all users, hashing 50k passwords would take minutes
+        String hash = passwordEncoder.encode(password);
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < instructors; i++) {
+            rows.add(new Object[]{FIRST_USER_ID + i, "instructor" + i, "instructor" + i + "@csumb.edu", hash, "INSTRUCTOR"});
+            rows = flush("insert into user_table (id, name, email, password, type) values (?, ?, ?, ?, ?)", rows);
+        }
+        for (int i = 0; i < students; i++) {
+            rows.add(new Object[]{FIRST_USER_ID + instructors + i, "student" + i, "student" + i + "@csumb.edu", hash, "STUDENT"});
+            rows = flush("insert into user_table (id, name, email, password, type) values (?, ?, ?, ?, ?)", rows);
+        }
+        flushAll("insert into user_table (id, name, email, password, type) values (?, ?, ?, ?, ?)", rows);
+    }
+
+    // one course for every 10 sections
+    private int insertCourses() {
+        int courses = Math.max(1, sections / 10);
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < courses; i++) {
+            rows.add(new Object[]{courseId(i), "Generated Course " + i, 4});
+            rows = flush("insert into course (course_id, title, credits) values (?, ?, ?)", rows);
+        }
+        flushAll("insert into course (course_id, title, credits) values (?, ?, ?)", rows);
+        return courses;
+    }
+
+    private void insertSections(int courses) {
+        String sql = "insert into section (section_no, course_id, section_id, term_id, building, room, times, instructor_email) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < sections; i++) {
+            rows.add(new Object[]{FIRST_SECTION_NO + i, courseId(i % courses), i / courses + 1, TERM_ID,
+                    "B" + (i % 20), "R" + (i % 50), "M W " + (8 + i % 10) + "-" + (9 + i % 10),
+                    "instructor" + (i % instructors) + "@csumb.edu"});
+            rows = flush(sql, rows);
+        }
+        flushAll(sql, rows);
+    }
+
+    // returns the enrollment ids of every section, indexed by section offset
+    private List<List<Integer>> insertEnrollments(Random random) {
+        List<List<Integer>> roster = new ArrayList<>(sections);
+        for (int i = 0; i < sections; i++) {
+            roster.add(new ArrayList<>());
+        }
+        String sql = "insert into enrollment (enrollment_id, grade, section_no, user_id) values (?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        int enrollmentId = FIRST_ENROLLMENT_ID;
+        int[] chosen = new int[enrollmentsPerStudent];
+        for (int s = 0; s < students; s++) {
+            for (int k = 0; k < enrollmentsPerStudent; k++) {
+                chosen[k] = distinctSection(random, chosen, k);
+                String grade = random.nextInt(3) == 0 ? GRADES[random.nextInt(GRADES.length)] : null;
+                rows.add(new Object[]{enrollmentId, grade, FIRST_SECTION_NO + chosen[k], FIRST_USER_ID + instructors + s});
+                roster.get(chosen[k]).add(enrollmentId);
+                enrollmentId++;
+                rows = flush(sql, rows);
+            }
+        }
+        flushAll(sql, rows);
+        return roster;
+    }
+
+    private int distinctSection(Random random, int[] chosen, int count) {
+        while (true) {
+            int candidate = random.nextInt(sections);
+            boolean duplicate = false;
+            for (int i = 0; i < count; i++) {
+                duplicate |= chosen[i] == candidate;
+            }
+            if (!duplicate) {
+                return candidate;
+            }
+        }
+    }
+
+    private void insertAssignmentsAndGrades(List<List<Integer>> roster, Random random) {
+        String assignmentSql = "insert into assignment (assignment_id, section_no, title, due_date) values (?, ?, ?, ?)";
+        String gradeSql = "insert into grade (grade_id, enrollment_id, assignment_id, score) values (?, ?, ?, ?)";
+        Date firstDue = Date.valueOf("2025-08-29");
+        List<Object[]> assignments = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> grades = new ArrayList<>(BATCH_SIZE);
+        int assignmentId = FIRST_ASSIGNMENT_ID;
+        int gradeId = FIRST_GRADE_ID;
+        for (int i = 0; i < sections; i++) {
+            for (int a = 0; a < assignmentsPerSection; a++) {
+                Date due = new Date(firstDue.getTime() + (long) (a * 100 / Math.max(1, assignmentsPerSection)) * 86_400_000L);
+                assignments.add(new Object[]{assignmentId, FIRST_SECTION_NO + i, "Assignment " + (a + 1), due});
+                assignments = flush(assignmentSql, assignments);
+                for (int enrollmentId : roster.get(i)) {
+                    grades.add(new Object[]{gradeId++, enrollmentId, assignmentId, 40 + random.nextInt(61)});
+                    if (grades.size() == BATCH_SIZE) {
+                        // grades reference the assignment rows, write those first
+                        flushAll(assignmentSql, assignments);
+                        assignments = new ArrayList<>(BATCH_SIZE);
+                        grades = flush(gradeSql, grades);
+                    }
+                }
+                assignmentId++;
+            }
+        }
+        flushAll(assignmentSql, assignments);
+        flushAll(gradeSql, grades);
+    }
+
+    private long gradeCount(List<List<Integer>> roster) {
+        long enrollments = 0;
+        for (List<Integer> r : roster) {
+            enrollments += r.size();
+        }
+        return enrollments * assignmentsPerSection;
+    }
+
+    private static String courseId(int i) {
+        return String.format("gen%04d", i);
+    }
+
+    // write the rows once a full batch has been collected
+    private List<Object[]> flush(String sql, List<Object[]> rows) {
+        if (rows.size() < BATCH_SIZE) {
+            return rows;
+        }
+        flushAll(sql, rows);
+        return new ArrayList<>(BATCH_SIZE);
+    }
+
+    private void flushAll(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(sql, rows);
+        }
+    }
+}
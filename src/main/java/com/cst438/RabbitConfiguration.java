@@ -0,0 +1,58 @@
+package com.cst438;
+
+import com.cst438.service.RegistrarEventConsumer;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfiguration {
+
+    public static final String REGISTRAR_DEAD_LETTER_QUEUE = "gradebook_service.dlq";
+
+    // messages from the registrar that still fail after the retry limit
+    @Bean
+    public Queue registrarDeadLetterQueue() {
+        return new Queue(REGISTRAR_DEAD_LETTER_QUEUE, true);
+    }
+
+    // a single consumer receives registrar events in batches so broker order is kept.
+    // RegistrarEventConsumer applies a batch in parallel and the whole batch is
+    // acknowledged with one ack when the listener returns.  A failed batch is retried
+    // with exponential backoff, after max-attempts the events not yet applied go to
+    // the dead letter queue.
+    @Bean
+    public SimpleRabbitListenerContainerFactory registrarListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ObjectProvider<RegistrarEventConsumer> consumer,
+            @Value("${gradebook.registrar.consumer.batch-size:100}") int batchSize,
+            @Value("${gradebook.registrar.consumer.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Value("${gradebook.registrar.consumer.max-attempts:3}") int maxAttempts,
+            @Value("${gradebook.registrar.consumer.initial-backoff-ms:100}") long initialBackoffMs,
+            @Value("${gradebook.registrar.consumer.max-backoff-ms:2000}") long maxBackoffMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(maxAttempts)
+                .backOffOptions(initialBackoffMs, 2.0, maxBackoffMs)
+                // the consumer is created with its @RabbitListener, after this factory
+                .recoverer((MessageBatchRecoverer) (messages, cause) -> consumer.getObject().recover(messages, cause))
+                .build());
+        return factory;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cst438;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/*
+ * CBOR and Smile responses for clients that send Accept: application/cbor or
+ * application/x-jackson-smile.  The converters are built once from the Jackson
+ * settings Spring Boot gives the JSON converter and replace the default instances in
+ * the converter list.  KeysetPageWriter reuses their ObjectMappers for the streamed
+ * lists.
+ */
+@Configuration
+public class ResponseEncodingConfiguration {
+
+    // the builder bean is a prototype, each converter gets its own copy
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
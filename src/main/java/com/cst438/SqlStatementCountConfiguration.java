@@ -0,0 +1,46 @@
+package com.cst438;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+// count the SQL statements of every request, see SqlStatementCounter and SqlStatementCountAdvice.
+// the DataSource is wrapped only when the count is enabled.
+@Configuration
+@ConditionalOnProperty(name = "gradebook.sql-statement-count.enabled", havingValue = "true")
+public class SqlStatementCountConfiguration {
+
+    @Bean
+    public static BeanPostProcessor sqlStatementCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? SqlStatementCounter.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer sqlStatementCountInterceptor() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                        SqlStatementCounter.reset();
+                        return true;
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.cst438;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/*
+ * Counts the SQL statements run on the current thread through the DataSource, by
+ * Hibernate as well as JdbcTemplate.  A prepared or callable statement counts once
+ * when it is prepared, a plain statement once for each execute.
+ * SqlStatementCountConfiguration wraps the DataSource when
+ * gradebook.sql-statement-count.enabled=true; the count is reset at the start of each
+ * request and reported in the X-Sql-Statement-Count response header.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+    private static final Set<String> PREPARE = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private SqlStatementCounter() {
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int count() {
+        return COUNT.get()[0];
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return counting(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return counting(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static Connection counting(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (PREPARE.contains(method.getName())) {
+                COUNT.get()[0]++;
+            } else if (method.getName().equals("createStatement")) {
+                return counting((Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private static Statement counting(Statement statement) {
+        return proxy(Statement.class, (proxy, method, args) -> {
+            if (EXECUTE.contains(method.getName())) {
+                COUNT.get()[0]++;
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
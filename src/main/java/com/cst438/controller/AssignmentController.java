@@ -4,21 +4,34 @@ import com.cst438.domain.*;
 import com.cst438.dto.AssignmentDTO;
 import com.cst438.dto.AssignmentStudentDTO;
 import com.cst438.dto.SectionDTO;
+import com.cst438.service.AssignmentStatisticsService;
+import com.cst438.service.GradeWriteBuffer;
+import com.cst438.service.ReferenceDataCache;
 import com.cst438.service.RegistrarServiceProxy;
+import com.cst438.service.ResourceVersionService;
+import com.cst438.service.SectionAccessService;
+import com.cst438.service.SectionInfo;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 
 import java.security.Principal;
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 public class AssignmentController {
@@ -28,71 +41,90 @@ public class AssignmentController {
     private final GradeRepository gradeRepository;
     private final UserRepository userRepository;
     private final RegistrarServiceProxy registrarService;
+    private final ReferenceDataCache referenceDataCache;
+    private final SectionAccessService sectionAccessService;
+    private final AssignmentStatisticsService statisticsService;
+    private final ResourceVersionService versionService;
+    private final KeysetPageWriter pageWriter;
+    private final GradeWriteBuffer gradeBuffer;
 
     public AssignmentController(
             SectionRepository sectionRepository,
             AssignmentRepository assignmentRepository,
             GradeRepository gradeRepository,
             UserRepository userRepository,
-            RegistrarServiceProxy registrarService) {
+            RegistrarServiceProxy registrarService,
+            ReferenceDataCache referenceDataCache,
+            SectionAccessService sectionAccessService,
+            AssignmentStatisticsService statisticsService,
+            ResourceVersionService versionService,
+            KeysetPageWriter pageWriter,
+            GradeWriteBuffer gradeBuffer) {
         this.sectionRepository = sectionRepository;
         this.assignmentRepository = assignmentRepository;
         this.gradeRepository = gradeRepository;
         this.userRepository = userRepository;
         this.registrarService = registrarService;
+        this.referenceDataCache = referenceDataCache;
+        this.sectionAccessService = sectionAccessService;
+        this.statisticsService = statisticsService;
+        this.versionService = versionService;
+        this.pageWriter = pageWriter;
+        this.gradeBuffer = gradeBuffer;
     }
 
-    // get Sections for an instructor
+    // get Sections for an instructor.
+    // optional keyset paging with limit and the after cursor from the Link header,
+    // without a limit all sections are streamed.
     @GetMapping("/sections")
     @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
-    public List<SectionDTO> getSectionsForInstructor(
+    public ResponseEntity<StreamingResponseBody> getSectionsForInstructor(
             @RequestParam("year") int year ,
             @RequestParam("semester") String semester,
-            Principal principal) {
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            Principal principal,
+            WebRequest request) {
 
         String instructorEmail = principal.getName();
-        // Find the instructor's name based on their email
-        User instructor = userRepository.findByEmail(instructorEmail);
-
-        // return the Sections that have instructorEmail for the
-        // logged-in instructor user for the given term.
-        List<Section> sections = sectionRepository.findByInstructorEmailAndYearAndSemester(instructorEmail, year, semester);
-
-        // If no sections are found, return an empty list
-        if (sections.isEmpty()){
-            return new ArrayList<>();
+        if (versionService.checkNotModified(request, "sections", KeysetPageWriter.etag(
+                versionService.instructorSectionsETag(instructorEmail), false, KeysetPageWriter.encoding(accept)))) {
+            return null;
         }
 
-        // Uses a stream to map each Section entity to a SectionDTO
-        return sections.stream()
-                .map(s -> new SectionDTO(
-                        s.getSectionNo(),
-                        s.getTerm().getYear(),
-                        s.getTerm().getSemester(),
-                        s.getCourse().getCourseId(),
-                        s.getCourse().getTitle(),
-                        s.getSectionId(),
-                        s.getBuilding(),
-                        s.getRoom(),
-                        s.getTimes(),
-                        instructor.getName(),
-                        s.getInstructorEmail()))
-                .toList();
+        // return the Sections that have instructorEmail for the
+        // logged-in instructor user for the given term, ordered by course and section id.
+        return pageWriter.write(accept, after, limit, 3,
+                (key, size) -> sectionRepository.findPageByInstructorEmailAndYearAndSemester(
+                        instructorEmail, year, semester,
+                        key == null ? "" : key[0],
+                        key == null ? 0 : Integer.parseInt(key[1]),
+                        key == null ? 0 : Integer.parseInt(key[2]),
+                        Limit.of(size)),
+                (SectionDTO s) -> new Object[]{s.courseId(), s.secId(), s.secNo()});
     }
 
     // instructor lists assignments for a section.
+    // @PreAuthorize verifies that user is the instructor for the section,
+    // a section that does not exist is let through and reported as not found
     @GetMapping("/sections/{secNo}/assignments")
-    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and " +
+            "(@sectionAccessService.isInstructor(authentication.name, #secNo) or @referenceDataCache.getSection(#secNo) == null)")
     public List<AssignmentDTO> getAssignments(
             @PathVariable("secNo") int secNo,
-            Principal principal) {
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            Principal principal,
+            WebRequest request) {
 
-        String instructorEmail = principal.getName();
-
-        // verify that user is the instructor for the section
-        Section section = sectionRepository.findBySectionNo(secNo);
-        if (section == null || !section.getInstructorEmail().equals(instructorEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to view assignments for this section.");
+        SectionInfo section = referenceDataCache.getSection(secNo);
+        if (section == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Section not found.");
+        }
+        // the message converters pick the encoding from the same Accept header
+        if (versionService.checkNotModified(request, "section-assignments", KeysetPageWriter.etag(
+                versionService.sectionETag(secNo), false, KeysetPageWriter.encoding(accept)))) {
+            return null;
         }
 
         // Find the section by section number
@@ -109,9 +141,9 @@ public class AssignmentController {
                         a.getAssignmentId(),
                         a.getTitle(),
                         a.getDueDate().toString(),
-                        a.getSection().getCourse().getCourseId(),
-                        a.getSection().getSectionId(),
-                        a.getSection().getSectionNo()))
+                        section.courseId(),
+                        section.sectionId(),
+                        section.sectionNo()))
                 .toList();
     }
 
@@ -124,16 +156,16 @@ public class AssignmentController {
 
         //  user must be the instructor for the Section
         String email = principal.getName();
-        Section section = sectionRepository.findBySectionNo(dto.secNo());
-        if (section == null || !section.getInstructorEmail().equals(email)) {
+        if (!sectionAccessService.isInstructor(email, dto.secNo())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to create assignments for this section.");
         }
+        SectionInfo section = referenceDataCache.getSection(dto.secNo());
 
 		//  check that assignment dueDate is between start date and 
 		//  end date of the term
         if (dto.dueDate() == null ||
-                section.getTerm().getStartDate().after(Date.valueOf(dto.dueDate())) ||
-                section.getTerm().getEndDate().before(Date.valueOf(dto.dueDate()))) {
+                section.startDate().after(Date.valueOf(dto.dueDate())) ||
+                section.endDate().before(Date.valueOf(dto.dueDate()))) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Due date must be within the term's start and end dates.");
         }
 
@@ -141,17 +173,18 @@ public class AssignmentController {
         Assignment assignment = new Assignment();
         assignment.setTitle(dto.title());
         assignment.setDueDate(Date.valueOf(dto.dueDate()));
-        assignment.setSection(section);
+        assignment.setSection(sectionRepository.getReferenceById(section.sectionNo()));
         assignmentRepository.save(assignment);
+        versionService.assignmentsChanged(section.sectionNo());
 
         //  return AssignmentDTO with database generated primary key
         AssignmentDTO result = new AssignmentDTO(
                 assignment.getAssignmentId(),
                 assignment.getTitle(),
                 assignment.getDueDate().toString(),
-                section.getCourse().getCourseId(),
-                section.getSectionId(),
-                section.getSectionNo()
+                section.courseId(),
+                section.sectionId(),
+                section.sectionNo()
         );
         return result;
     }
@@ -162,10 +195,10 @@ public class AssignmentController {
     public AssignmentDTO updateAssignment(@Valid @RequestBody AssignmentDTO dto, Principal principal) {
         //  user must be instructor of the Section
         String email = principal.getName();
-        Section section = sectionRepository.findBySectionNo(dto.secNo());
-        if (section == null || !section.getInstructorEmail().equals(email)) {
+        if (!sectionAccessService.isInstructor(email, dto.secNo())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to update assignments for this section.");
         }
+        SectionInfo section = referenceDataCache.getSection(dto.secNo());
 
         //  update Assignment Entity. only title and dueDate fields can be changed.
         Assignment assignment = assignmentRepository.findById(dto.id())
@@ -173,20 +206,21 @@ public class AssignmentController {
         assignment.setTitle(dto.title());
         if (dto.dueDate() != null) {
             Date dueDate = Date.valueOf(dto.dueDate());
-            if (section.getTerm().getStartDate().after(dueDate) || section.getTerm().getEndDate().before(dueDate)) {
+            if (section.startDate().after(dueDate) || section.endDate().before(dueDate)) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Due date must be within the term's start and end dates.");
             }
             assignment.setDueDate(dueDate);
         }
         assignmentRepository.save(assignment);
+        versionService.assignmentsChanged(section.sectionNo());
         //  return AssignmentDTO with database generated primary key
         AssignmentDTO result = new AssignmentDTO(
                 assignment.getAssignmentId(),
                 assignment.getTitle(),
                 assignment.getDueDate().toString(),
-                section.getCourse().getCourseId(),
-                section.getSectionId(),
-                section.getSectionNo()
+                section.courseId(),
+                section.sectionId(),
+                section.sectionNo()
         );
         return result;
     }
@@ -198,13 +232,14 @@ public class AssignmentController {
         String email = principal.getName();
         Assignment assignment = assignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Assignment not found"));
-        Section section = assignment.getSection();
-        if (section == null || !section.getInstructorEmail().equals(email)) {
+        if (!sectionAccessService.isInstructor(email, assignment.getSection().getSectionNo())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to delete assignments for this section.");
         }
 
         // delete the Assignment entity
         assignmentRepository.deleteById(assignmentId);
+        statisticsService.invalidate(assignmentId);
+        versionService.assignmentsChanged(assignment.getSection().getSectionNo());
     }
 
     // student lists their assignments/grades ordered by due date
@@ -213,38 +248,34 @@ public class AssignmentController {
     public List<AssignmentStudentDTO> getStudentAssignments(
             @RequestParam("year") int year,
             @RequestParam("semester") String semester,
-            Principal principal) {
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            Principal principal,
+            WebRequest request) {
 
         String email = principal.getName();
-        // Assignments are already sorted by due date in the database query
-        List<Assignment> assignments = assignmentRepository.findByStudentEmailAndYearAndSemester(email,year, semester);
-        if (assignments.isEmpty()) {
-            return new ArrayList<>();
+        if (versionService.checkNotModified(request, "student-assignments", KeysetPageWriter.etag(
+                versionService.studentETag(email), false, KeysetPageWriter.encoding(accept)))) {
+            return null;
         }
-
-        //  Return AssignmentStudentDTOs with scores of a
-        //  Grade entity exists.
-        //  If assignment has not been graded, return a null score.
-        List<AssignmentStudentDTO> assignmentStudentDTOs = new ArrayList<>();
-        for (Assignment a : assignments) {
-            // Check if a grade exists for this assignment
-            // If no grade exists, it will be null
-            Grade grade = gradeRepository.findByStudentEmailAndAssignmentId(email, a.getAssignmentId());
-            Integer score = null;
-            if (grade != null){
-                score = grade.getScore();
-            }
-            AssignmentStudentDTO dto = new AssignmentStudentDTO(
-                    a.getAssignmentId(),
-                    a.getTitle(),
-                    a.getDueDate(),
-                    a.getSection().getCourse().getCourseId(),
-                    a.getSection().getSectionId(),
-                    score
-            );
-            assignmentStudentDTOs.add(dto);
+        //  Return AssignmentStudentDTOs sorted by due date with the score
+        //  of the Grade entity if one exists.
+        //  If assignment has not been graded, the score is null.
+        List<AssignmentStudentDTO> assignments =
+                assignmentRepository.findStudentAssignmentsByEmailAndYearAndSemester(email, year, semester);
+        if (gradeBuffer.isEmpty()) {
+            return assignments;
         }
-
-        return assignmentStudentDTOs;
+        // scores waiting in the write-behind buffer over the stored ones
+        Map<Integer, Integer> gradeIds = new HashMap<>();
+        for (Object[] row : gradeRepository.findStudentGradeIds(email, year, semester)) {
+            gradeIds.put((Integer) row[0], (Integer) row[1]);
+        }
+        return assignments.stream()
+                .map(a -> {
+                    Integer gradeId = gradeIds.get(a.assignmentId());
+                    return gradeId == null ? a : new AssignmentStudentDTO(a.assignmentId(), a.title(), a.dueDate(),
+                            a.courseId(), a.sectionId(), gradeBuffer.score(gradeId, a.score()));
+                })
+                .toList();
     }
 }
@@ -2,19 +2,34 @@ package com.cst438.controller;
 
 import com.cst438.domain.*;
 import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.EnrollmentListDTO;
+import com.cst438.service.ReferenceDataCache;
 import com.cst438.service.RegistrarServiceProxy;
+import com.cst438.service.ResourceVersionService;
+import com.cst438.service.SectionAccessService;
+import com.cst438.service.SectionInfo;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @RestController
 public class EnrollmentController {
@@ -22,86 +37,127 @@ public class EnrollmentController {
     private final EnrollmentRepository enrollmentRepository;
     private final SectionRepository sectionRepository;
     private final RegistrarServiceProxy registrar;
+    private final ReferenceDataCache referenceDataCache;
+    private final SectionAccessService sectionAccessService;
+    private final ResourceVersionService versionService;
+    private final KeysetPageWriter pageWriter;
 
     public EnrollmentController (
             EnrollmentRepository enrollmentRepository,
             SectionRepository sectionRepository,
-            RegistrarServiceProxy registrar
+            RegistrarServiceProxy registrar,
+            ReferenceDataCache referenceDataCache,
+            SectionAccessService sectionAccessService,
+            ResourceVersionService versionService,
+            KeysetPageWriter pageWriter
     ) {
         this.enrollmentRepository = enrollmentRepository;
         this.sectionRepository = sectionRepository;
         this.registrar = registrar;
+        this.referenceDataCache = referenceDataCache;
+        this.sectionAccessService = sectionAccessService;
+        this.versionService = versionService;
+        this.pageWriter = pageWriter;
     }
 
 
-    // instructor gets student enrollments with grades for a section
+    // instructor gets student enrollments with grades for a section.
+    // optional keyset paging with limit and the after cursor from the Link header,
+    // without a limit the whole roster is streamed.
+    // view=compact or the compact media type sends the section fields once.
+    // Accept: application/cbor or application/x-jackson-smile for a binary encoding.
     @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
     @GetMapping("/sections/{sectionNo}/enrollments")
-    public List<EnrollmentDTO> getEnrollments(
-            @PathVariable("sectionNo") int sectionNo, Principal principal ) {
+    public ResponseEntity<StreamingResponseBody> getEnrollments(
+            @PathVariable("sectionNo") int sectionNo,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "view", required = false) String view,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            Principal principal,
+            WebRequest request) {
 
-        Section section = sectionRepository.findById(sectionNo).orElse(null);
+        SectionInfo section = referenceDataCache.getSection(sectionNo);
         if (section == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Section not found.");
         }
         // check that the sectionNo belongs to the logged in instructor.
-        if (!section.getInstructorEmail().equals(principal.getName())) {
+        if (!sectionAccessService.isInstructor(principal.getName(), sectionNo)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not instructor for this section.");
         }
-		// use the EnrollmentRepository findEnrollmentsBySectionNoOrderByStudentName
-		// to get a list of Enrollments for the given sectionNo.
-		// Return a list of EnrollmentDTOs
-
-        List<Enrollment> enrollments = enrollmentRepository.findEnrollmentsBySectionNoOrderByStudentName(sectionNo);
-        // Convert to DTOs
-        return enrollments.stream().map(e -> new EnrollmentDTO(
-                e.getEnrollmentId(),
-                e.getGrade(),
-                e.getStudent().getId(),
-                e.getStudent().getName(),
-                e.getStudent().getEmail(),
-                section.getCourse().getCourseId(),
-                section.getCourse().getTitle(),
-                section.getSectionId(),
-                section.getSectionNo(),
-                section.getBuilding(),
-                section.getRoom(),
-                section.getTimes(),
-                section.getCourse().getCredits(),
-                section.getTerm().getYear(),
-                section.getTerm().getSemester()
-        )).collect(Collectors.toList());
+        boolean compact = KeysetPageWriter.isCompact(view, accept);
+        if (versionService.checkNotModified(request, "section-enrollments", KeysetPageWriter.etag(
+                versionService.sectionETag(sectionNo), compact, KeysetPageWriter.encoding(accept)))) {
+            return null;
+        }
+        // EnrollmentDTOs in (student name, enrollment id) order, read a page at a time
+        KeysetPageWriter.PageQuery<EnrollmentDTO> query =
+                (key, size) -> enrollmentRepository.findPageBySectionNo(sectionNo,
+                        key == null ? "" : key[0],
+                        key == null ? 0 : Integer.parseInt(key[1]),
+                        Limit.of(size));
+        Function<EnrollmentDTO, Object[]> keyOf = e -> new Object[]{e.name(), e.enrollmentId()};
+        if (compact) {
+            return pageWriter.writeCompact(accept, after, limit, 2, query, keyOf,
+                    "section", EnrollmentListDTO.Section.of(section), "students", EnrollmentListDTO.Row::of);
+        }
+        return pageWriter.write(accept, after, limit, 2, query, keyOf);
     }
 
     // instructor updates enrollment grades
     @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
     @PutMapping("/enrollments")
+    @Transactional
     public void updateEnrollmentGrade(@Valid @RequestBody List<EnrollmentDTO> dtoList, Principal principal) {
 
         String instructorEmail = principal.getName();
+        // load all enrollments with one query
+        List<Integer> enrollmentIds = dtoList.stream().map(EnrollmentDTO::enrollmentId).toList();
+        Map<Integer, Enrollment> enrollments = new HashMap<>();
+        for (Enrollment e : enrollmentRepository.findAllById(enrollmentIds)) {
+            enrollments.put(e.getEnrollmentId(), e);
+        }
+
         // for each EnrollmentDTO
+        Map<Integer, Boolean> sectionOwner = new HashMap<>();
+        Set<Integer> changedSections = new HashSet<>();
+        List<Map<String, Object>> messages = new ArrayList<>();
         for (EnrollmentDTO dto : dtoList) {
-            Enrollment enrollment = enrollmentRepository.findById(dto.enrollmentId()).orElse(null);
+            Enrollment enrollment = enrollments.get(dto.enrollmentId());
 
             if (enrollment == null) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Enrollment not found: " + dto.enrollmentId());
             }
             //    check that logged in user is instructor for the section
-            Section section = enrollment.getSection();
-            if (section == null || !section.getInstructorEmail().equals(instructorEmail)) {
+            //    once for each distinct section in the list
+            int sectionNo = enrollment.getSection().getSectionNo();
+            boolean owner = sectionOwner.computeIfAbsent(sectionNo,
+                    secNo -> sectionAccessService.isInstructor(instructorEmail, secNo));
+            if (!owner) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You are not authorized to update grades for this section.");
             }
 
-            //    update the enrollment grade
+            //    update the enrollment grade.  changed rows are written
+            //    as one JDBC batch when the transaction commits.
+            if (Objects.equals(enrollment.getGrade(), dto.grade())) {
+                continue;
+            }
             enrollment.setGrade(dto.grade());
-            enrollmentRepository.save(enrollment);
+            changedSections.add(sectionNo);
 
-            //    send message to Registrar service for grade update
             Map<String, Object> message = new HashMap<>();
             message.put("enrollmentId", dto.enrollmentId());
             message.put("grade", dto.grade());
-            registrar.sendMessage("updateEnrollment", message);
+            messages.add(message);
+        }
+
+        changedSections.forEach(versionService::sectionChanged);
+
+        //    send one message to Registrar service with all grade updates.
+        //    the message is stored in the outbox as part of this transaction.
+        //    nothing is sent when no grade changed.
+        if (!messages.isEmpty()) {
+            registrar.sendMessage("updateEnrollments", messages);
         }
-       
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.NotAcceptableStatusException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -21,6 +22,7 @@ import java.util.stream.Collectors;
 //   "status", 400,
 //   "errors": [error message texts]
 // }
+// NotAcceptableStatusException from content negotiation is a 406 without a body.
 
 @ControllerAdvice
 public class ExceptionAdvisor {
@@ -41,6 +43,12 @@ public class ExceptionAdvisor {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
 
+    // no body, the client accepts none of the types it could be written in
+    @ExceptionHandler(NotAcceptableStatusException.class)
+    public ResponseEntity<Object> handleNotAcceptableStatusException(NotAcceptableStatusException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).headers(ex.getHeaders()).build();
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Object> handleResponseStatusException(ResponseStatusException ex) {
         Map<String, Object> body = new LinkedHashMap<>();
@@ -0,0 +1,117 @@
+package com.cst438.controller;
+
+import com.cst438.domain.*;
+import com.cst438.dto.CategoryDTO;
+import com.cst438.dto.FinalGradeDTO;
+import com.cst438.service.FinalGradeService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+
+// assignment categories of a section and the final grades computed from them
+@RestController
+public class FinalGradeController {
+
+    private final AssignmentCategoryRepository categoryRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final SectionRepository sectionRepository;
+    private final FinalGradeService finalGradeService;
+
+    public FinalGradeController(
+            AssignmentCategoryRepository categoryRepository,
+            AssignmentRepository assignmentRepository,
+            SectionRepository sectionRepository,
+            FinalGradeService finalGradeService) {
+        this.categoryRepository = categoryRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.sectionRepository = sectionRepository;
+        this.finalGradeService = finalGradeService;
+    }
+
+    // instructor lists the categories of a section and the assignments in each
+    @GetMapping("/sections/{secNo}/categories")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public List<CategoryDTO> getCategories(@PathVariable("secNo") int secNo) {
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (Assignment a : assignmentRepository.findBySectionNo(secNo)) {
+            if (a.getCategory() != null) {
+                members.computeIfAbsent(a.getCategory().getCategoryId(), k -> new ArrayList<>()).add(a.getAssignmentId());
+            }
+        }
+        List<CategoryDTO> result = new ArrayList<>();
+        for (AssignmentCategory c : categoryRepository.findBySectionNo(secNo)) {
+            result.add(new CategoryDTO(c.getCategoryId(), c.getName(), c.getWeight(),
+                    members.getOrDefault(c.getCategoryId(), List.of())));
+        }
+        return result;
+    }
+
+    // instructor replaces the categories of a section.  an assignment not listed
+    // in any category does not count towards the final grade.
+    @PutMapping("/sections/{secNo}/categories")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    @Transactional
+    public List<CategoryDTO> updateCategories(@PathVariable("secNo") int secNo, @Valid @RequestBody List<CategoryDTO> dtoList) {
+        Section section = sectionRepository.findById(secNo).orElse(null);
+        if (section == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Section not found");
+        }
+        Set<String> names = new HashSet<>();
+        int totalWeight = 0;
+        for (CategoryDTO dto : dtoList) {
+            if (!names.add(dto.name().trim().toLowerCase())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate category " + dto.name());
+            }
+            totalWeight += dto.weight();
+        }
+        if (!dtoList.isEmpty() && totalWeight == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Category weights must not all be 0");
+        }
+
+        // the old categories are deleted first, the database clears assignment.category_id
+        categoryRepository.deleteBySectionNo(secNo);
+        Map<Integer, Assignment> assignments = new HashMap<>();
+        for (Assignment a : assignmentRepository.findBySectionNo(secNo)) {
+            a.setCategory(null);
+            assignments.put(a.getAssignmentId(), a);
+        }
+
+        for (CategoryDTO dto : dtoList) {
+            AssignmentCategory c = new AssignmentCategory();
+            c.setName(dto.name().trim());
+            c.setWeight(dto.weight());
+            c.setSection(section);
+            categoryRepository.save(c);
+            for (int assignmentId : dto.assignmentIds() == null ? List.<Integer>of() : dto.assignmentIds()) {
+                Assignment a = assignments.get(assignmentId);
+                if (a == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Assignment " + assignmentId + " is not in the section");
+                }
+                if (a.getCategory() != null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Assignment " + assignmentId + " is in more than one category");
+                }
+                a.setCategory(c);
+            }
+        }
+        return getCategories(secNo);
+    }
+
+    // instructor computes and saves the final grades of a section
+    @PostMapping("/sections/{secNo}/grades/compute")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public List<FinalGradeDTO> computeSectionGrades(@PathVariable("secNo") int secNo) {
+        return finalGradeService.computeSection(secNo);
+    }
+
+    // registrar staff compute the final grades of every section in a term
+    @PostMapping("/terms/{year}/{semester}/grades/compute")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_ADMIN')")
+    public List<FinalGradeDTO> computeTermGrades(@PathVariable("year") int year, @PathVariable("semester") String semester) {
+        return finalGradeService.computeTerm(year, semester);
+    }
+}
@@ -1,32 +1,86 @@
 package com.cst438.controller;
 
 import com.cst438.domain.*;
+import com.cst438.dto.AssignmentStatisticsDTO;
 import com.cst438.dto.GradeDTO;
+import com.cst438.dto.GradeListDTO;
+import com.cst438.dto.GradebookDTO;
+import com.cst438.dto.GradeUpdateResultDTO;
+import com.cst438.service.AssignmentStatisticsService;
+import com.cst438.service.GradeRosterService;
+import com.cst438.service.GradeWriteBuffer;
+import com.cst438.service.ReferenceDataCache;
+import com.cst438.service.ResourceVersionService;
+import com.cst438.service.SectionAccessService;
+import com.cst438.service.SectionInfo;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 public class GradeController {
     private final AssignmentRepository assignmentRepository;
     private final GradeRepository gradeRepository;
+    private final SectionRepository sectionRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final SectionAccessService sectionAccessService;
+    private final AssignmentStatisticsService statisticsService;
+    private final ResourceVersionService versionService;
+    private final KeysetPageWriter pageWriter;
+    private final GradeWriteBuffer gradeBuffer;
+    private final GradeRosterService rosterService;
+    private final TransactionTemplate transactionTemplate;
 
     public GradeController (
             AssignmentRepository assignmentRepository,
-            GradeRepository gradeRepository
+            GradeRepository gradeRepository,
+            SectionRepository sectionRepository,
+            ReferenceDataCache referenceDataCache,
+            SectionAccessService sectionAccessService,
+            AssignmentStatisticsService statisticsService,
+            ResourceVersionService versionService,
+            KeysetPageWriter pageWriter,
+            GradeWriteBuffer gradeBuffer,
+            GradeRosterService rosterService,
+            PlatformTransactionManager transactionManager
     ) {
         this.assignmentRepository = assignmentRepository;
         this.gradeRepository = gradeRepository;
+        this.sectionRepository = sectionRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.sectionAccessService = sectionAccessService;
+        this.statisticsService = statisticsService;
+        this.versionService = versionService;
+        this.pageWriter = pageWriter;
+        this.gradeBuffer = gradeBuffer;
+        this.rosterService = rosterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
     @GetMapping("/assignments/{assignmentId}/grades")
-    public List<GradeDTO> getAssignmentGrades(@PathVariable("assignmentId") int assignmentId, Principal principal) {
+    public ResponseEntity<StreamingResponseBody> getAssignmentGrades(
+            @PathVariable("assignmentId") int assignmentId,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "view", required = false) String view,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            Principal principal) {
         // Check that the Section of the assignment belongs to the 
 		// logged in instructor 
         // return a list of GradeDTOs containing student scores for an assignment
@@ -40,70 +94,177 @@ public class GradeController {
         }
 
         // Check if section of the assignment belongs to the logged in instructor
-        String instructorEmail = assignment.getSection().getInstructorEmail();
-        if (!instructorEmail.equals(principal.getName())) {
+        int sectionNo = assignment.getSection().getSectionNo();
+        if (!sectionAccessService.isInstructor(principal.getName(), sectionNo)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized");
         }
 
-        List<GradeDTO> result = new ArrayList<>();
-        // Get all enrollments in the section
-        List<Enrollment> enrollments = assignment.getSection().getEnrollments();
+        // create the missing Grade entities for the section roster in one statement.
+        // rows a concurrent request inserted first are read below.
+        rosterService.createMissingGrades(assignmentId, sectionNo);
 
-        for (Enrollment enrollment : enrollments) {
-            String studentEmail = enrollment.getStudent().getEmail();
-            // Find grade by student email and assignment Id
-            Grade grade = gradeRepository.findByStudentEmailAndAssignmentId(studentEmail, assignmentId);
+        // GradeDTOs in (student name, grade id) order, read a page at a time,
+        // with the scores waiting in the write-behind buffer over the stored ones.
+        // optional keyset paging with limit and the after cursor from the Link header,
+        // without a limit all grades are streamed.
+        // view=compact or the compact media type sends the assignment fields once.
+        // Accept: application/cbor or application/x-jackson-smile for a binary encoding.
+        KeysetPageWriter.PageQuery<GradeDTO> query =
+                (key, size) -> withBufferedScores(gradeRepository.findPageByAssignmentId(assignmentId,
+                        key == null ? "" : key[0],
+                        key == null ? 0 : Integer.parseInt(key[1]),
+                        Limit.of(size)));
+        Function<GradeDTO, Object[]> keyOf = g -> new Object[]{g.studentName(), g.gradeId()};
+        if (KeysetPageWriter.isCompact(view, accept)) {
+            SectionInfo section = referenceDataCache.getSection(sectionNo);
+            GradeListDTO.Assignment header = new GradeListDTO.Assignment(assignmentId, assignment.getTitle(),
+                    section.courseId(), section.sectionId(), section.sectionNo());
+            return pageWriter.writeCompact(accept, after, limit, 2, query, keyOf,
+                    "assignment", header, "grades", GradeListDTO.Row::of);
+        }
+        return pageWriter.write(accept, after, limit, 2, query, keyOf);
+    }
 
-            // If grade does not exist yet, create one with null score
-            if (grade == null) {
-                grade = new Grade();
-                grade.setAssignment(assignment);
-                grade.setEnrollment(enrollment);
-                grade.setScore(null);
-                grade = gradeRepository.save(grade);
-            }
-            // Create DTO to return
-            GradeDTO dto = new GradeDTO(
-                grade.getGradeId(),
-                grade.getEnrollment().getStudent().getName(),
-                grade.getEnrollment().getStudent().getEmail(),
-                assignment.getTitle(),
-                assignment.getSection().getCourse().getCourseId(),
-                assignment.getSection().getSectionId(),
-                grade.getScore()
-            );
-            result.add(dto);
+    private List<GradeDTO> withBufferedScores(List<GradeDTO> grades) {
+        if (gradeBuffer.isEmpty()) {
+            return grades;
         }
+        List<GradeDTO> result = new ArrayList<>(grades.size());
+        for (GradeDTO g : grades) {
+            result.add(new GradeDTO(g.gradeId(), g.studentName(), g.studentEmail(), g.assignmentTitle(),
+                    g.courseId(), g.sectionId(), gradeBuffer.score(g.gradeId(), g.score())));
+        }
+        return result;
+    }
 
 
-        return result;
+    // instructor gets score statistics for an assignment, kept up to date in memory
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
+    @GetMapping("/assignments/{assignmentId}/statistics")
+    public AssignmentStatisticsDTO getAssignmentStatistics(@PathVariable("assignmentId") int assignmentId, Principal principal) {
+        Assignment assignment = assignmentRepository.findById(assignmentId).orElse(null);
+        if (assignment == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Assignment not found");
+        }
+        int sectionNo = assignment.getSection().getSectionNo();
+        if (!sectionAccessService.isInstructor(principal.getName(), sectionNo)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized");
+        }
+        return statisticsService.getStatistics(assignmentId, sectionNo);
     }
 
+    // instructor gets the scores of every student for every assignment of a section.
+    // all cells are read with one query, the assignment and student headers are sent
+    // once and the scores as a dense matrix with null for an ungraded cell.
+    @GetMapping("/sections/{secNo}/gradebook")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public GradebookDTO getGradebook(@PathVariable("secNo") int secNo) {
+        SectionInfo section = referenceDataCache.getSection(secNo);
+        if (section == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Section not found.");
+        }
+        // cells are ordered by student, then by assignment due date
+        List<Object[]> cells = sectionRepository.findGradebookBySectionNo(secNo);
+        Map<Integer, Integer> columnIndex = new LinkedHashMap<>();
+        Map<Integer, Integer> rowIndex = new LinkedHashMap<>();
+        List<GradebookDTO.Column> columns = new ArrayList<>();
+        List<GradebookDTO.Row> rows = new ArrayList<>();
+        for (Object[] cell : cells) {
+            Integer enrollmentId = (Integer) cell[0];
+            Integer assignmentId = (Integer) cell[4];
+            if (enrollmentId != null && !rowIndex.containsKey(enrollmentId)) {
+                rowIndex.put(enrollmentId, rows.size());
+                rows.add(new GradebookDTO.Row(enrollmentId, (Integer) cell[1], (String) cell[2], (String) cell[3]));
+            }
+            if (assignmentId != null && !columnIndex.containsKey(assignmentId)) {
+                columnIndex.put(assignmentId, columns.size());
+                columns.add(new GradebookDTO.Column(assignmentId, (String) cell[5],
+                        cell[6] == null ? null : cell[6].toString()));
+            }
+        }
+
+        // scores waiting in the write-behind buffer over the stored ones
+        Integer[][] scores = new Integer[rows.size()][columns.size()];
+        for (Object[] cell : cells) {
+            if (cell[0] != null && cell[4] != null && cell[8] != null) {
+                scores[rowIndex.get((Integer) cell[0])][columnIndex.get((Integer) cell[4])] =
+                        gradeBuffer.score((Integer) cell[8], (Integer) cell[7]);
+            }
+        }
+        return new GradebookDTO(section.sectionNo(), section.courseId(), section.sectionId(), columns, rows, scores);
+    }
 
     @PutMapping("/grades")
     @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
-    public void updateGrades(@Valid @RequestBody List<GradeDTO> dtoList, Principal principal) {
-		// for each GradeDTO
-		// check that the logged in instructor is the owner of the section
-        // update the assignment score
-        for(GradeDTO dto : dtoList) {
-            // Find the grade by gradeId or return 400 if not found
-            Grade grade = gradeRepository.findById(dto.gradeId()).orElse(null);
+    public List<GradeUpdateResultDTO> updateGrades(@Valid @RequestBody List<GradeDTO> dtoList, Principal principal) {
+        if (!gradeBuffer.isEnabled()) {
+            return transactionTemplate.execute(status -> saveGrades(dtoList, principal));
+        }
+        // wait for room in the grade buffer before the transaction takes a connection
+        gradeBuffer.reserve(dtoList.size());
+        try {
+            return transactionTemplate.execute(status -> saveGrades(dtoList, principal));
+        } finally {
+            gradeBuffer.release(dtoList.size());
+        }
+    }
+
+    private List<GradeUpdateResultDTO> saveGrades(List<GradeDTO> dtoList, Principal principal) {
+        // load and lock all grades of the sheet with one query.  a concurrent request for
+        // the same grades waits here, so the old score used for the statistics is current.
+        List<Integer> gradeIds = dtoList.stream().map(GradeDTO::gradeId).distinct().toList();
+        Map<Integer, Grade> grades = new HashMap<>();
+        for (Grade grade : gradeRepository.findAllByIdForUpdate(gradeIds)) {
+            grades.put(grade.getGradeId(), grade);
+        }
+
+        // for each GradeDTO
+        // check that the logged in instructor is the owner of the section.
+        // the check is done once for each distinct section in the sheet.
+        // update the assignment score.  A row that fails is reported in the
+        // result list and does not stop the other rows from being saved.
+        // in write-behind mode the score goes to the grade buffer when the
+        // transaction commits and is written to the database with the next flush.
+        Map<Integer, Boolean> sectionOwner = new HashMap<>();
+        List<GradeUpdateResultDTO> results = new ArrayList<>();
+        for (GradeDTO dto : dtoList) {
+            Grade grade = grades.get(dto.gradeId());
             if (grade == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Grade not found for id " + dto.gradeId());
+                results.add(GradeUpdateResultDTO.failed(dto.gradeId(), "Grade not found for id " + dto.gradeId()));
+                continue;
             }
-            
-            // check that the logged in instructor is the owner of the section
-            String instructorEmail = grade.getAssignment().getSection().getInstructorEmail();
-            if (!instructorEmail.equals(principal.getName())) {
-                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to modify grade " + dto.gradeId());
+
+            int sectionNo = grade.getAssignment().getSection().getSectionNo();
+            boolean owner = sectionOwner.computeIfAbsent(sectionNo,
+                    secNo -> sectionAccessService.isInstructor(principal.getName(), secNo));
+            if (!owner) {
+                results.add(GradeUpdateResultDTO.failed(dto.gradeId(), "Not authorized to modify grade " + dto.gradeId()));
+                continue;
+            }
+
+            // same range as the check constraint on grade.score
+            if (dto.score() != null && (dto.score() < 0 || dto.score() > 100)) {
+                results.add(GradeUpdateResultDTO.failed(dto.gradeId(), "Score must be between 0 and 100"));
+                continue;
             }
-            
-            // Update the score and save
-            grade.setScore(dto.score());
-            gradeRepository.save(grade);
 
+            int assignmentId = grade.getAssignment().getAssignmentId();
+            Integer oldScore = gradeBuffer.score(grade.getGradeId(), grade.getScore());
+            if (gradeBuffer.isEnabled()) {
+                // another request buffered a score after oldScore was read.
+                // the score is buffered before the statistics delta below runs.
+                gradeBuffer.write(grade.getGradeId(), oldScore, dto.score(),
+                        () -> statisticsService.discard(assignmentId));
+            } else {
+                // managed entity is written when the transaction commits.
+                // hibernate sends all changed rows as one JDBC batch.
+                grade.setScore(dto.score());
+            }
+            statisticsService.scoreChanged(assignmentId, oldScore, dto.score());
+            versionService.sectionChanged(sectionNo);
+            versionService.studentChanged(grade.getEnrollment().getStudent().getEmail());
+            results.add(GradeUpdateResultDTO.ok(dto.gradeId(), dto.score()));
         }
-        
+        return results;
     }
 }
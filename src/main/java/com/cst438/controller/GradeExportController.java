@@ -0,0 +1,69 @@
+package com.cst438.controller;
+
+import com.cst438.service.GradeExportService;
+import com.cst438.service.GradeExportService.Format;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// grade exports for download.  rows are streamed to the client as they are read.
+// the server compresses them when the client sends Accept-Encoding: gzip, see
+// server.compression in application.properties
+@RestController
+public class GradeExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
+
+    private final GradeExportService exportService;
+
+    public GradeExportController(GradeExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // instructor exports the grades of a section
+    @GetMapping("/sections/{secNo}/grades/export")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public ResponseEntity<StreamingResponseBody> exportSection(
+            @PathVariable("secNo") int secNo,
+            @RequestParam(name = "format", defaultValue = "csv") String format) {
+        Format f = format(format);
+        return stream("section-" + secNo + "-grades", f,
+                out -> exportService.exportSection(secNo, f, out));
+    }
+
+    // registrar staff export the grades of every section in a term
+    @GetMapping("/terms/{year}/{semester}/grades/export")
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportTerm(
+            @PathVariable("year") int year,
+            @PathVariable("semester") String semester,
+            @RequestParam(name = "format", defaultValue = "csv") String format) {
+        Format f = format(format);
+        return stream(semester + "-" + year + "-grades", f,
+                out -> exportService.exportTerm(year, semester, f, out));
+    }
+
+    private static Format format(String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            return Format.CSV;
+        }
+        if ("ndjson".equalsIgnoreCase(format) || "json".equalsIgnoreCase(format)) {
+            return Format.NDJSON;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String name, Format format, StreamingResponseBody body) {
+        String extension = format == Format.CSV ? ".csv" : ".ndjson";
+        return ResponseEntity.ok()
+                .contentType(format == Format.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + extension + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cst438.controller;
+
+import com.cst438.domain.Assignment;
+import com.cst438.domain.AssignmentRepository;
+import com.cst438.dto.GradeImportResultDTO;
+import com.cst438.service.GradeImportService;
+import com.cst438.service.SectionAccessService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+// instructor uploads scores from a spreadsheet saved as CSV.
+// the file is sent as the request body (text/csv) or as the "file" part of a form upload.
+@RestController
+public class GradeImportController {
+
+    private final AssignmentRepository assignmentRepository;
+    private final SectionAccessService sectionAccessService;
+    private final GradeImportService importService;
+
+    public GradeImportController(
+            AssignmentRepository assignmentRepository,
+            SectionAccessService sectionAccessService,
+            GradeImportService importService) {
+        this.assignmentRepository = assignmentRepository;
+        this.sectionAccessService = sectionAccessService;
+        this.importService = importService;
+    }
+
+    // columns email, score
+    @PostMapping(value = "/assignments/{assignmentId}/grades/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
+    public GradeImportResultDTO importAssignmentGrades(
+            @PathVariable("assignmentId") int assignmentId,
+            InputStream body,
+            Principal principal) throws IOException {
+        return importAssignment(assignmentId, body, principal);
+    }
+
+    @PostMapping(value = "/assignments/{assignmentId}/grades/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR')")
+    public GradeImportResultDTO importAssignmentGradesFile(
+            @PathVariable("assignmentId") int assignmentId,
+            @RequestParam("file") MultipartFile file,
+            Principal principal) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return importAssignment(assignmentId, in, principal);
+        }
+    }
+
+    // columns email, assignmentId, score
+    @PostMapping(value = "/sections/{secNo}/grades/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public GradeImportResultDTO importSectionGrades(
+            @PathVariable("secNo") int secNo,
+            InputStream body) throws IOException {
+        return importSection(secNo, body);
+    }
+
+    @PostMapping(value = "/sections/{secNo}/grades/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('SCOPE_ROLE_INSTRUCTOR') and @sectionAccessService.isInstructor(authentication.name, #secNo)")
+    public GradeImportResultDTO importSectionGradesFile(
+            @PathVariable("secNo") int secNo,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return importSection(secNo, in);
+        }
+    }
+
+    private GradeImportResultDTO importAssignment(int assignmentId, InputStream in, Principal principal) throws IOException {
+        Assignment assignment = assignmentRepository.findById(assignmentId).orElse(null);
+        if (assignment == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Assignment not found");
+        }
+        int sectionNo = assignment.getSection().getSectionNo();
+        if (!sectionAccessService.isInstructor(principal.getName(), sectionNo)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized");
+        }
+        try {
+            return importService.importAssignment(assignmentId, sectionNo, new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private GradeImportResultDTO importSection(int secNo, InputStream in) throws IOException {
+        try {
+            return importService.importSection(secNo, new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
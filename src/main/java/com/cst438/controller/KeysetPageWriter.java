@@ -0,0 +1,306 @@
+package com.cst438.controller;
+
+import com.cst438.service.ResourceVersionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+ * Keyset pagination for the roster sized list endpoints.
+ *
+ * The rows of a list are ordered by a unique key, e.g. (student name, enrollment id).
+ * A page is read with "where key > last key order by key" and a limit that the
+ * repository passes to the database, so a page costs the same at any position.  The
+ * last key of a page is sent to the client as an opaque cursor in the Link header,
+ * rel="next", and comes back as the after parameter.
+ *
+ * Without a limit the whole list is returned, read chunk-size rows at a time and
+ * written with the Jackson streaming generator as each chunk arrives, so no more
+ * than one chunk is held in memory.  The body is a JSON array either way.
+ *
+ * The first page is read on the request thread so a bad cursor is a 400 and not a
+ * broken response.
+ *
+ * Clients that ask for the compact view get an object with the fields shared by all
+ * rows once, then the list of thin rows.  Paging works the same in both views.
+ *
+ * Clients that accept application/cbor or application/x-jackson-smile get the same
+ * structure in that binary encoding, written with the ObjectMapper of the matching
+ * message converter.  Each encoding and view is its own representation with its own
+ * ETag variant, see etag().
+ */
+@Component
+public class KeysetPageWriter {
+
+    // one page of at most size rows with a key greater than after, null for the first page
+    @FunctionalInterface
+    public interface PageQuery<T> {
+        List<T> page(String[] after, int size);
+    }
+
+    public static final MediaType COMPACT_JSON = new MediaType("application", "vnd.gradebook.compact+json");
+    public static final String COMPACT_VIEW = "compact";
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    private static final List<MediaType> SUPPORTED =
+            List.of(MediaType.APPLICATION_JSON, COMPACT_JSON, MediaType.APPLICATION_CBOR, SMILE);
+
+    // the encodings a list can be written in, JSON unless the Accept header prefers another
+    public enum Encoding {
+        JSON(MediaType.APPLICATION_JSON), CBOR(MediaType.APPLICATION_CBOR), SMILE(KeysetPageWriter.SMILE);
+
+        private final MediaType mediaType;
+
+        Encoding(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+    }
+
+    private final Map<Encoding, ObjectWriter> writers = new EnumMap<>(Encoding.class);
+    private final int maxLimit;
+    private final int chunkSize;
+
+    public KeysetPageWriter(
+            ObjectMapper mapper,
+            MappingJackson2CborHttpMessageConverter cborConverter,
+            MappingJackson2SmileHttpMessageConverter smileConverter,
+            @Value("${gradebook.page.max-limit:1000}") int maxLimit,
+            @Value("${gradebook.page.chunk-size:500}") int chunkSize) {
+        // the generator is flushed by its buffer, not after every row
+        writers.put(Encoding.JSON, mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        writers.put(Encoding.CBOR, cborConverter.getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        writers.put(Encoding.SMILE, smileConverter.getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        this.maxLimit = maxLimit;
+        this.chunkSize = chunkSize;
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> write(
+            String accept, String after, Integer limit, int keyParts, PageQuery<T> query, Function<T, Object[]> keyOf) {
+        return write(encoding(accept), after, limit, keyParts, query, keyOf, null, Function.identity());
+    }
+
+    // compact view: {"<headerName>": header, "<rowsName>": [row, ...]}, the header is
+    // written once and each row is reduced to the fields that differ between rows
+    public <T> ResponseEntity<StreamingResponseBody> writeCompact(
+            String accept, String after, Integer limit, int keyParts, PageQuery<T> query, Function<T, Object[]> keyOf,
+            String headerName, Object header, String rowsName, Function<T, ?> row) {
+        return write(encoding(accept), after, limit, keyParts, query, keyOf,
+                new Envelope(headerName, header, rowsName), row);
+    }
+
+    // the compact view is chosen with view=compact or Accept: application/vnd.gradebook.compact+json
+    public static boolean isCompact(String view, String accept) {
+        if (COMPACT_VIEW.equalsIgnoreCase(view)) {
+            return true;
+        }
+        if (accept == null) {
+            return false;
+        }
+        for (MediaType type : acceptable(accept)) {
+            if (COMPACT_JSON.equalsTypeAndSubtype(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the encoding of the most preferred listed type, JSON for a wildcard or without an Accept header.
+    // a type with q=0 is not acceptable, e.g. "application/json;q=0, */*" is answered in CBOR.
+    // 406 Not Acceptable when none of the listed types can be written.
+    public static Encoding encoding(String accept) {
+        if (accept == null) {
+            return Encoding.JSON;
+        }
+        List<MediaType> types = new ArrayList<>();
+        List<MediaType> refused = new ArrayList<>();
+        for (MediaType type : parse(accept)) {
+            if (type.getQualityValue() > 0) {
+                types.add(type);
+            } else {
+                refused.add(type);
+            }
+        }
+        // highest quality value first, then the most specific
+        MimeTypeUtils.sortBySpecificity(types);
+        for (MediaType type : types) {
+            if (COMPACT_JSON.equalsTypeAndSubtype(type)) {
+                return Encoding.JSON;
+            }
+            // an exact type or a wildcard like application/* or */*
+            for (Encoding encoding : Encoding.values()) {
+                if (type.includes(encoding.mediaType())
+                        && refused.stream().noneMatch(encoding.mediaType()::equalsTypeAndSubtype)) {
+                    return encoding;
+                }
+            }
+        }
+        throw new NotAcceptableStatusException(SUPPORTED);
+    }
+
+    // the listed types without q=0
+    private static List<MediaType> acceptable(String accept) {
+        List<MediaType> types = new ArrayList<>();
+        for (MediaType type : parse(accept)) {
+            if (type.getQualityValue() > 0) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    private static List<MediaType> parse(String accept) {
+        try {
+            return MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            throw new NotAcceptableStatusException("Could not parse Accept header: " + e.getMessage());
+        }
+    }
+
+    // ETag of one representation of a list, the JSON array keeps the plain ETag
+    public static String etag(String etag, boolean compact, Encoding encoding) {
+        if (compact) {
+            etag = ResourceVersionService.variant(etag, COMPACT_VIEW);
+        }
+        if (encoding != Encoding.JSON) {
+            etag = ResourceVersionService.variant(etag, encoding.name().toLowerCase());
+        }
+        return etag;
+    }
+
+    private record Envelope(String headerName, Object header, String rowsName) {
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> write(
+            Encoding encoding, String after, Integer limit, int keyParts, PageQuery<T> query, Function<T, Object[]> keyOf,
+            Envelope envelope, Function<T, ?> row) {
+        String[] start = after == null ? null : decode(after, keyParts);
+        if (limit != null && (limit < 1 || limit > maxLimit)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxLimit);
+        }
+        int size = limit != null ? limit : chunkSize;
+        List<T> first;
+        try {
+            // one extra row tells whether there is a next page
+            first = query.page(start, limit != null ? size + 1 : size);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+
+        ObjectWriter writer = writers.get(encoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(envelope != null && encoding == Encoding.JSON ? COMPACT_JSON : encoding.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (limit != null) {
+            List<T> rows = first.size() > size ? first.subList(0, size) : first;
+            if (first.size() > size) {
+                String next = encode(keyOf.apply(rows.get(rows.size() - 1)));
+                String link = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("after", next)
+                        .replaceQueryParam("limit", limit)
+                        .build().toUriString();
+                response.header(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+            }
+            return response.body(out -> {
+                try (JsonGenerator json = writer.createGenerator(out)) {
+                    start(json, writer, envelope);
+                    writeRows(json, writer, rows, row);
+                    end(json, envelope);
+                }
+            });
+        }
+        return response.body(out -> {
+            try (JsonGenerator json = writer.createGenerator(out)) {
+                start(json, writer, envelope);
+                List<T> rows = first;
+                writeRows(json, writer, rows, row);
+                while (rows.size() == size) {
+                    rows = query.page(toStrings(keyOf.apply(rows.get(rows.size() - 1))), size);
+                    writeRows(json, writer, rows, row);
+                }
+                end(json, envelope);
+            }
+        });
+    }
+
+    private static void start(JsonGenerator json, ObjectWriter writer, Envelope envelope) throws IOException {
+        if (envelope != null) {
+            json.writeStartObject();
+            json.writeFieldName(envelope.headerName());
+            writer.writeValue(json, envelope.header());
+            json.writeFieldName(envelope.rowsName());
+        }
+        json.writeStartArray();
+    }
+
+    private static void end(JsonGenerator json, Envelope envelope) throws IOException {
+        json.writeEndArray();
+        if (envelope != null) {
+            json.writeEndObject();
+        }
+    }
+
+    private static <T> void writeRows(JsonGenerator json, ObjectWriter writer, List<T> rows, Function<T, ?> row) throws IOException {
+        for (T r : rows) {
+            writer.writeValue(json, row.apply(r));
+        }
+        json.flush();
+    }
+
+    private static String encode(Object[] key) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < key.length; i++) {
+            if (i > 0) {
+                s.append('\0');
+            }
+            s.append(key[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, int parts) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\0", -1);
+            if (key.length == parts) {
+                return key;
+            }
+        } catch (IllegalArgumentException e) {
+            // not base64
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+    }
+
+    private static String[] toStrings(Object[] key) {
+        String[] s = new String[key.length];
+        for (int i = 0; i < key.length; i++) {
+            s[i] = String.valueOf(key[i]);
+        }
+        return s;
+    }
+}
@@ -1,31 +1,70 @@
 package com.cst438.controller;
 
-import com.cst438.domain.User;
-import com.cst438.domain.UserRepository;
 import com.cst438.dto.LoginDTO;
+import com.cst438.dto.RefreshTokenDTO;
+import com.cst438.service.RefreshTokenService;
 import com.cst438.service.TokenService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
 
 @RestController
 public class LoginController {
 
 	private final TokenService tokenService;
-	private final UserRepository userRepository;
+	private final RefreshTokenService refreshTokenService;
+	private final Duration accessTokenTtl;
 
-	public LoginController(TokenService tokenService, UserRepository userRepository) {
+	public LoginController(
+			TokenService tokenService,
+			RefreshTokenService refreshTokenService,
+			@Value("${gradebook.jwt.access-token-ttl:15m}") Duration accessTokenTtl) {
 		this.tokenService = tokenService;
-		this.userRepository = userRepository;
+		this.refreshTokenService = refreshTokenService;
+		this.accessTokenTtl = accessTokenTtl;
 	}
 
 	// generate JWT token containing user login email and role of STUDENT, ADMIN or INSTRUCTOR
+	// together with a refresh token that can be exchanged for new JWTs without the password
 	@GetMapping("/login")
 	public LoginDTO token(Authentication authentication) {
-		String name = authentication.getName();
-		User user = userRepository.findByEmail(name);
+		String scope = TokenService.scope(authentication);
 		String token = tokenService.generateToken(authentication);
-		return new LoginDTO(token, user.getType());
+		String refreshToken = refreshTokenService.issue(authentication.getName(), scope);
+		return new LoginDTO(token, role(scope), refreshToken);
+	}
+
+	// exchange a refresh token for a short-lived JWT and the next refresh token.
+	// the refresh token presented is revoked and cannot be used again.
+	@PostMapping("/login/refresh")
+	public LoginDTO refresh(@RequestBody RefreshTokenDTO dto) {
+		RefreshTokenService.Rotation rotation;
+		try {
+			rotation = refreshTokenService.rotate(dto.refreshToken());
+		} catch (BadCredentialsException e) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+		}
+		String token = tokenService.generateToken(rotation.email(), rotation.scope(), accessTokenTtl);
+		return new LoginDTO(token, role(rotation.scope()), rotation.refreshToken());
+	}
+
+	// sign out, the refresh token and all tokens issued from the same login are revoked
+	@PostMapping("/login/revoke")
+	public void revoke(@RequestBody RefreshTokenDTO dto) {
+		refreshTokenService.revoke(dto.refreshToken());
+	}
+
+	// authorities are ROLE_STUDENT, ROLE_INSTRUCTOR or ROLE_ADMIN
+	private static String role(String scope) {
+		return scope.startsWith("ROLE_") ? scope.substring("ROLE_".length()) : scope;
 	}
 
 }
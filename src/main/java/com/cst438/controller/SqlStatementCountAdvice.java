@@ -0,0 +1,39 @@
+package com.cst438.controller;
+
+import com.cst438.SqlStatementCounter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// add the number of SQL statements run by the request as a response header.
+// used by the load test to find N+1 queries, enabled only for load testing.
+// a streamed response runs its queries after the header is sent, it gets no header.
+@ControllerAdvice
+@ConditionalOnProperty(name = "gradebook.sql-statement-count.enabled", havingValue = "true")
+public class SqlStatementCountAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER = "X-Sql-Statement-Count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        Class<?> bodyType = ResponseEntity.class.isAssignableFrom(returnType.getParameterType())
+                ? returnType.nested().getNestedParameterType()
+                : returnType.getParameterType();
+        return !StreamingResponseBody.class.isAssignableFrom(bodyType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        response.getHeaders().set(HEADER, Integer.toString(SqlStatementCounter.count()));
+        return body;
+    }
+}
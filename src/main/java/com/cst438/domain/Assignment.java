@@ -13,9 +13,12 @@ public class Assignment {
     private int assignmentId;
     private String title;
     private Date dueDate;
-    @ManyToOne
+    @ManyToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="section_no", nullable=false)
     private Section section;
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="category_id")
+    private AssignmentCategory category;
 
     @OneToMany(mappedBy="assignment")
     private List<Grade> grades;
@@ -56,6 +59,14 @@ public class Assignment {
         this.section = section;
     }
 
+    public AssignmentCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(AssignmentCategory category) {
+        this.category = category;
+    }
+
     public List<Grade> getGrades() {
         return grades;
     }
@@ -0,0 +1,49 @@
+package com.cst438.domain;
+
+import jakarta.persistence.*;
+
+// a group of assignments of a section, such as Homework or Exams, and its
+// weight in the final grade
+@Entity
+public class AssignmentCategory {
+    @Id
+    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    private int categoryId;
+    private String name;
+    private int weight;
+    @ManyToOne(fetch=FetchType.LAZY)
+    @JoinColumn(name="section_no", nullable=false)
+    private Section section;
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    public void setSection(Section section) {
+        this.section = section;
+    }
+}
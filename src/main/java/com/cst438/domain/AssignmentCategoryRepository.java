@@ -0,0 +1,18 @@
+package com.cst438.domain;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface AssignmentCategoryRepository extends CrudRepository<AssignmentCategory, Integer> {
+
+    @Query("select c from AssignmentCategory c where c.section.sectionNo = :sectionNo order by c.name")
+    List<AssignmentCategory> findBySectionNo(int sectionNo);
+
+    // assignments of a deleted category are left without a category (on delete set null)
+    @Modifying
+    @Query("delete from AssignmentCategory c where c.section.sectionNo = :sectionNo")
+    void deleteBySectionNo(int sectionNo);
+}
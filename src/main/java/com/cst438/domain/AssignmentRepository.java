@@ -1,5 +1,6 @@
 package com.cst438.domain;
 
+import com.cst438.dto.AssignmentStudentDTO;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -7,8 +8,13 @@ import java.util.List;
 
 public interface AssignmentRepository extends CrudRepository<Assignment, Integer> {
 
-    @Query("select a from Assignment a join a.section.term t join a.section.enrollments e where e.student.email=:email and t.year=:year and t.semester=:semester order by a.dueDate")
-    List<Assignment> findByStudentEmailAndYearAndSemester(String email, int year, String semester);
+    // student's assignments with section, course and the student's score (null if no Grade exists)
+    // built directly from one joined query ordered by due date
+    @Query("select new com.cst438.dto.AssignmentStudentDTO(a.assignmentId, a.title, a.dueDate, c.courseId, s.sectionId, g.score) " +
+            "from Assignment a join a.section s join s.course c join s.term t join s.enrollments e join e.student u " +
+            "left join Grade g on g.assignment = a and g.enrollment = e " +
+            "where u.email=:email and t.year=:year and t.semester=:semester order by a.dueDate")
+    List<AssignmentStudentDTO> findStudentAssignmentsByEmailAndYearAndSemester(String email, int year, String semester);
 
     // Method to find assignments by sectionNo
     @Query("select a from Assignment a where a.section.sectionNo = :sectionNo order by a.dueDate")
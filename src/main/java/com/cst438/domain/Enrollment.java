@@ -8,7 +8,7 @@ public class Enrollment {
     int enrollmentId;
     String grade;
 
-    @ManyToOne
+    @ManyToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="section_no", nullable=false)
     private Section section;
 
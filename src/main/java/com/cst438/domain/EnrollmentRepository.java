@@ -1,5 +1,7 @@
 package com.cst438.domain;
 
+import com.cst438.dto.EnrollmentDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -8,4 +10,12 @@ import java.util.List;
 public interface EnrollmentRepository extends CrudRepository<Enrollment, Integer> {
     @Query("select e from Enrollment e where e.section.sectionNo=:sectionNo order by e.student.name")
     List<Enrollment> findEnrollmentsBySectionNoOrderByStudentName(int sectionNo);
+
+    // one page of the section roster in (student name, enrollment id) order after the given key
+    @Query("select new com.cst438.dto.EnrollmentDTO(e.enrollmentId, e.grade, u.id, u.name, u.email, c.courseId, c.title, " +
+            "s.sectionId, s.sectionNo, s.building, s.room, s.times, c.credits, t.year, t.semester) " +
+            "from Enrollment e join e.student u join e.section s join s.course c join s.term t " +
+            "where s.sectionNo=:sectionNo and (u.name > :name or (u.name = :name and e.enrollmentId > :enrollmentId)) " +
+            "order by u.name, e.enrollmentId")
+    List<EnrollmentDTO> findPageBySectionNo(int sectionNo, String name, int enrollmentId, Limit limit);
 }
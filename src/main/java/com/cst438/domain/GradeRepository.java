@@ -1,10 +1,34 @@
 package com.cst438.domain;
 
+import com.cst438.dto.GradeDTO;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 public interface GradeRepository extends CrudRepository<Grade, Integer> {
 
     @Query("select g from Grade g where g.assignment.assignmentId=:assignmentId and g.enrollment.student.email=:email")
     Grade findByStudentEmailAndAssignmentId(String email, int assignmentId);
+
+    // the grades of a PUT /grades sheet, locked until the transaction ends so two requests
+    // that change the same grade see each other's score.  rows are locked in id order.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select g from Grade g where g.gradeId in :gradeIds order by g.gradeId")
+    List<Grade> findAllByIdForUpdate(List<Integer> gradeIds);
+
+    // assignment id and grade id of a student's grades in a term, to show the scores waiting in the GradeWriteBuffer
+    @Query("select a.assignmentId, g.gradeId from Grade g join g.assignment a join a.section s join s.term t " +
+            "join g.enrollment e join e.student u where u.email=:email and t.year=:year and t.semester=:semester")
+    List<Object[]> findStudentGradeIds(String email, int year, String semester);
+
+    // one page of the grades for an assignment in (student name, grade id) order after the given key
+    @Query("select new com.cst438.dto.GradeDTO(g.gradeId, u.name, u.email, a.title, c.courseId, s.sectionId, g.score) " +
+            "from Grade g join g.enrollment e join e.student u join g.assignment a join a.section s join s.course c " +
+            "where a.assignmentId=:assignmentId and (u.name > :name or (u.name = :name and g.gradeId > :gradeId)) " +
+            "order by u.name, g.gradeId")
+    List<GradeDTO> findPageByAssignmentId(int assignmentId, String name, int gradeId, Limit limit);
 }
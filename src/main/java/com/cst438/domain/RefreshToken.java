@@ -0,0 +1,73 @@
+package com.cst438.domain;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+public class RefreshToken {
+    @Id
+    private String tokenHash;
+    private String familyId;
+    private String email;
+    private String scope;
+    private Instant familyIssuedAt;
+    private Instant expiresAt;
+    private boolean revoked;
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public void setFamilyId(String familyId) {
+        this.familyId = familyId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public Instant getFamilyIssuedAt() {
+        return familyIssuedAt;
+    }
+
+    public void setFamilyIssuedAt(Instant familyIssuedAt) {
+        this.familyIssuedAt = familyIssuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    public void setRevoked(boolean revoked) {
+        this.revoked = revoked;
+    }
+}
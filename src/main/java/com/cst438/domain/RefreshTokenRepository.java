@@ -0,0 +1,27 @@
+package com.cst438.domain;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, String> {
+
+    @Modifying
+    @Transactional
+    // compare and set: 0 when the token was already revoked, by this or another instance
+    @Query("update RefreshToken t set t.revoked = true where t.tokenHash = :tokenHash and t.revoked = false")
+    int revokeIfActive(String tokenHash);
+
+    @Modifying
+    @Transactional
+    @Query("update RefreshToken t set t.revoked = true where t.familyId = :familyId")
+    int revokeByFamilyId(String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
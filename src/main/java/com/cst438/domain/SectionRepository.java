@@ -1,17 +1,45 @@
 package com.cst438.domain;
 
+import com.cst438.dto.SectionDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.sql.Date;
 import java.util.List;
 
-public interface SectionRepository extends CrudRepository<Section, Integer> {
+public interface SectionRepository extends JpaRepository<Section, Integer> {
     @Query("select s from Section s " +
             "where s.instructorEmail=:email and s.term.year=:year and s.term.semester=:semester " +
             "order by s.course.courseId, s.sectionId")
     List<Section> findByInstructorEmailAndYearAndSemester(String email, int year, String semester);
 
+    // one page of the instructor's sections in (course, section id, section no) order after the given key
+    @Query("select new com.cst438.dto.SectionDTO(s.sectionNo, t.year, t.semester, c.courseId, c.title, s.sectionId, " +
+            "s.building, s.room, s.times, u.name, s.instructorEmail) " +
+            "from Section s join s.term t join s.course c left join User u on u.email = s.instructorEmail " +
+            "where s.instructorEmail=:email and t.year=:year and t.semester=:semester " +
+            "and (c.courseId > :courseId or (c.courseId = :courseId and (s.sectionId > :sectionId " +
+            "or (s.sectionId = :sectionId and s.sectionNo > :sectionNo)))) " +
+            "order by c.courseId, s.sectionId, s.sectionNo")
+    List<SectionDTO> findPageByInstructorEmailAndYearAndSemester(
+            String email, int year, String semester, String courseId, int sectionId, int sectionNo, Limit limit);
+
     // Method to find assignments by sectionNo
     @Query("select s from Section s where s.sectionNo = :sectionNo")
     Section findBySectionNo(int sectionNo);
+
+    // sectionNo and instructorEmail of the sections in terms that have not ended
+    @Query("select s.sectionNo, s.instructorEmail from Section s where s.term.endDate >= :date")
+    List<Object[]> findSectionOwnersForTermsEndingOnOrAfter(Date date);
+
+    // every (student, assignment) cell of the section gradebook in one query.
+    // enrollmentId, studentId, name, email, assignmentId, title, dueDate, score, gradeId
+    // the student columns are null when the section has no enrollments and the
+    // assignment columns are null when it has no assignments.
+    @Query("select e.enrollmentId, u.id, u.name, u.email, a.assignmentId, a.title, a.dueDate, g.score, g.gradeId " +
+            "from Section s left join s.enrollments e left join e.student u left join s.assignments a " +
+            "left join Grade g on g.assignment = a and g.enrollment = e " +
+            "where s.sectionNo = :sectionNo order by u.name, e.enrollmentId, a.dueDate, a.assignmentId")
+    List<Object[]> findGradebookBySectionNo(int sectionNo);
 }
@@ -0,0 +1,19 @@
+package com.cst438.dto;
+
+/*
+ * Data Transfer Object for the score statistics of an assignment.
+ * mean, median, min, max and standardDeviation are null when no score has been entered.
+ * histogram[score] is the number of students with that score, 0 to 100.
+ */
+public record AssignmentStatisticsDTO(
+        int assignmentId,
+        int graded,
+        int ungraded,
+        Double mean,
+        Double median,
+        Integer min,
+        Integer max,
+        Double standardDeviation,
+        int[] histogram
+) {
+}
@@ -0,0 +1,25 @@
+package com.cst438.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for an assignment category of a section.
+ * weight is the category's share of the final grade, categories without a graded
+ * assignment are left out and the remaining weights scaled up.
+ */
+public record CategoryDTO(
+        int categoryId,
+        @NotBlank(message="category name is required")
+        @Size(max=50, message="category name max length 50")
+        String name,
+        @Min(value=0, message="weight must be between 0 and 100")
+        @Max(value=100, message="weight must be between 0 and 100")
+        int weight,
+        List<Integer> assignmentIds
+) {
+}
@@ -0,0 +1,44 @@
+package com.cst438.dto;
+
+import com.cst438.service.SectionInfo;
+
+import java.util.List;
+
+/*
+ * Compact form of the enrollment list of a section.
+ * The section fields are sent once, each student row has only the fields that differ.
+ */
+public record EnrollmentListDTO(
+        Section section,
+        List<Row> students
+) {
+    public record Section(
+            int secNo,
+            String courseId,
+            String title,
+            int secId,
+            String building,
+            String room,
+            String times,
+            int credits,
+            int year,
+            String semester) {
+
+        public static Section of(SectionInfo s) {
+            return new Section(s.sectionNo(), s.courseId(), s.courseTitle(), s.sectionId(),
+                    s.building(), s.room(), s.times(), s.credits(), s.year(), s.semester());
+        }
+    }
+
+    public record Row(
+            int enrollmentId,
+            String grade,
+            int studentId,
+            String name,
+            String email) {
+
+        public static Row of(EnrollmentDTO e) {
+            return new Row(e.enrollmentId(), e.grade(), e.studentId(), e.name(), e.email());
+        }
+    }
+}
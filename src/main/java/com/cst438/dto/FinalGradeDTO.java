@@ -0,0 +1,18 @@
+package com.cst438.dto;
+
+/*
+ * Data Transfer Object for a computed final grade.
+ * percentage and grade are null when the student has no graded assignment,
+ * the enrollment grade is then left unchanged.
+ * enteredGrade is a grade entered by hand that the computation cannot produce,
+ * e.g. B+ or I.  It is kept and grade is only the computed suggestion.
+ */
+public record FinalGradeDTO(
+        int enrollmentId,
+        int sectionNo,
+        String studentEmail,
+        Double percentage,
+        String grade,
+        String enteredGrade
+) {
+}
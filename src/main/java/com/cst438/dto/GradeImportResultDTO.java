@@ -0,0 +1,19 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the result of a grade CSV import.
+ * rows is the number of data rows read, updated the number of scores saved.
+ * Each row that was not saved is listed in errors with its line number in the file.
+ */
+public record GradeImportResultDTO(
+        int rows,
+        int updated,
+        List<RowError> errors
+) {
+    public record RowError(
+            int line,
+            String error) {
+    }
+}
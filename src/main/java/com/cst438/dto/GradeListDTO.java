@@ -0,0 +1,31 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Compact form of the grade list of an assignment.
+ * The assignment fields are sent once, each grade row has only the fields that differ.
+ */
+public record GradeListDTO(
+        Assignment assignment,
+        List<Row> grades
+) {
+    public record Assignment(
+            int assignmentId,
+            String title,
+            String courseId,
+            int secId,
+            int secNo) {
+    }
+
+    public record Row(
+            int gradeId,
+            String studentName,
+            String studentEmail,
+            Integer score) {
+
+        public static Row of(GradeDTO g) {
+            return new Row(g.gradeId(), g.studentName(), g.studentEmail(), g.score());
+        }
+    }
+}
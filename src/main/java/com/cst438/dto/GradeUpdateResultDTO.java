@@ -0,0 +1,19 @@
+package com.cst438.dto;
+/*
+ * Data Transfer Object for the result of updating one row of a grade sheet.
+ * error is null when the score was saved.
+ */
+public record GradeUpdateResultDTO(
+        int gradeId,
+        Integer score,
+        boolean updated,
+        String error
+) {
+    public static GradeUpdateResultDTO ok(int gradeId, Integer score) {
+        return new GradeUpdateResultDTO(gradeId, score, true, null);
+    }
+
+    public static GradeUpdateResultDTO failed(int gradeId, String error) {
+        return new GradeUpdateResultDTO(gradeId, null, false, error);
+    }
+}
@@ -0,0 +1,30 @@
+package com.cst438.dto;
+
+import java.util.List;
+
+/*
+ * Data Transfer Object for the gradebook of a section.
+ * assignments are the columns ordered by due date, students are the rows ordered by name.
+ * scores[row][column] is the score of the student for the assignment, null if not graded.
+ */
+public record GradebookDTO(
+        int secNo,
+        String courseId,
+        int secId,
+        List<Column> assignments,
+        List<Row> students,
+        Integer[][] scores
+) {
+    public record Column(
+            int assignmentId,
+            String title,
+            String dueDate) {
+    }
+
+    public record Row(
+            int enrollmentId,
+            int studentId,
+            String name,
+            String email) {
+    }
+}
@@ -0,0 +1,5 @@
+package com.cst438.dto;
+
+public record RefreshTokenDTO(
+        String refreshToken) {
+}
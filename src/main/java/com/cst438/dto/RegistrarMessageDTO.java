@@ -0,0 +1,16 @@
+package com.cst438.dto;
+
+/*
+ * Data Transfer Object for a decoded registrar message.
+ * type is the command, e.g. addSection or deleteUser.
+ * key is the id of the entity the message changes.
+ * payload is a CourseDTO, SectionDTO, UserPasswordDTO or EnrollmentDTO
+ * for add and update messages and the entity id for delete messages.
+ */
+public record RegistrarMessageDTO(
+        String type,
+        String key,
+        int version,
+        Object payload
+) {
+}
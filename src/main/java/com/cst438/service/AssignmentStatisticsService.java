@@ -0,0 +1,199 @@
+package com.cst438.service;
+
+import com.cst438.dto.AssignmentStatisticsDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Score statistics of each assignment kept in memory.
+ *
+ * The statistics of an assignment are a histogram with one bucket per score 0-100,
+ * the sum and sum of squares of the scores, and the number of students enrolled in
+ * the section.  Mean, standard deviation, min, max and median are computed from these
+ * in constant time.  Ungraded is the enrollment count minus the graded count, so
+ * creating Grade rows with a null score does not change the statistics.
+ *
+ * An assignment's statistics are loaded on first use with one grouped query on the
+ * (assignment_id, enrollment_id) index.  Score changes are applied as deltas when the
+ * transaction that made them commits.  PUT /grades locks the grade rows it changes, so
+ * the old score of a delta is the current one.  When the change cannot be applied
+ * exactly (a bulk import, an enrollment change from the registrar, a buffered score
+ * replaced by another request, an old score that is not counted) the statistics are
+ * dropped and loaded again on the next read.
+ *
+ * A load reads the stored scores with the scores waiting in the GradeWriteBuffer over
+ * them, it does not flush the buffer.  Loads and deltas hold the same lock, so a delta
+ * is either seen by the query of a load or applied after the loaded statistics are in
+ * place, where the check against the statistics seen by the request drops them.  PUT
+ * /grades buffers a score before its delta runs, so the load that follows sees it.
+ */
+@Service
+public class AssignmentStatisticsService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GradeWriteBuffer gradeBuffer;
+    private final Map<Integer, Stats> statistics = new ConcurrentHashMap<>();
+    // held by loads and by deltas, not by removals which are always safe
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public AssignmentStatisticsService(JdbcTemplate jdbcTemplate, GradeWriteBuffer gradeBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gradeBuffer = gradeBuffer;
+    }
+
+    public AssignmentStatisticsDTO getStatistics(int assignmentId, int sectionNo) {
+        Stats stats = statistics.get(assignmentId);
+        if (stats == null) {
+            lock.lock();
+            try {
+                stats = statistics.get(assignmentId);
+                if (stats == null) {
+                    stats = load(assignmentId, sectionNo);
+                    statistics.put(assignmentId, stats);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return stats.toDTO(assignmentId);
+    }
+
+    // a score changed from oldScore to newScore, either may be null
+    public void scoreChanged(int assignmentId, Integer oldScore, Integer newScore) {
+        if (oldScore == null ? newScore == null : oldScore.equals(newScore)) {
+            return;
+        }
+        Stats seen = statistics.get(assignmentId);
+        AfterCommit.run(() -> {
+            lock.lock();
+            try {
+                // statistics loaded after the change was made may already include it
+                if (seen == null || statistics.get(assignmentId) != seen || !seen.change(oldScore, newScore)) {
+                    statistics.remove(assignmentId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    // drop the statistics at once, for a caller that already runs after the commit
+    public void discard(int assignmentId) {
+        statistics.remove(assignmentId);
+    }
+
+    public void invalidate(int assignmentId) {
+        AfterCommit.run(() -> statistics.remove(assignmentId));
+    }
+
+    public void invalidateSection(int sectionNo) {
+        AfterCommit.run(() -> statistics.values().removeIf(s -> s.sectionNo == sectionNo));
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(statistics::clear);
+    }
+
+    private Stats load(int assignmentId, int sectionNo) {
+        Stats stats = new Stats(sectionNo);
+        if (gradeBuffer.isEmpty()) {
+            jdbcTemplate.query("select score, count(*) from grade where assignment_id = ? and score is not null group by score",
+                    rs -> {
+                        stats.add(rs.getInt(1), rs.getInt(2));
+                    },
+                    assignmentId);
+        } else {
+            // a buffered score may be set on a grade stored without one
+            jdbcTemplate.query("select grade_id, score from grade where assignment_id = ?",
+                    rs -> {
+                        Integer score = gradeBuffer.score(rs.getInt(1), rs.getObject(2, Integer.class));
+                        if (score != null) {
+                            stats.add(score, 1);
+                        }
+                    },
+                    assignmentId);
+        }
+        Integer enrolled = jdbcTemplate.queryForObject(
+                "select count(*) from enrollment where section_no = ?", Integer.class, sectionNo);
+        stats.enrolled = enrolled == null ? 0 : enrolled;
+        return stats;
+    }
+
+    private static class Stats {
+        final int sectionNo;
+        final int[] histogram = new int[101];
+        int graded;
+        int enrolled;
+        long sum;
+        long sumOfSquares;
+
+        Stats(int sectionNo) {
+            this.sectionNo = sectionNo;
+        }
+
+        synchronized void add(int score, int count) {
+            histogram[score] += count;
+            graded += count;
+            sum += (long) score * count;
+            sumOfSquares += (long) score * score * count;
+        }
+
+        // false when the old score was not counted, the statistics missed a change
+        synchronized boolean change(Integer oldScore, Integer newScore) {
+            if (oldScore != null) {
+                if (histogram[oldScore] == 0) {
+                    return false;
+                }
+                add(oldScore, -1);
+            }
+            if (newScore != null) {
+                add(newScore, 1);
+            }
+            return true;
+        }
+
+        synchronized AssignmentStatisticsDTO toDTO(int assignmentId) {
+            int ungraded = Math.max(0, enrolled - graded);
+            if (graded == 0) {
+                return new AssignmentStatisticsDTO(assignmentId, 0, ungraded, null, null, null, null, null, histogram.clone());
+            }
+            Integer min = null;
+            Integer max = null;
+            for (int score = 0; score <= 100; score++) {
+                if (histogram[score] > 0) {
+                    if (min == null) {
+                        min = score;
+                    }
+                    max = score;
+                }
+            }
+            double mean = (double) sum / graded;
+            double variance = Math.max(0, (double) sumOfSquares / graded - mean * mean);
+            return new AssignmentStatisticsDTO(assignmentId, graded, ungraded, mean, median(), min, max,
+                    Math.sqrt(variance), histogram.clone());
+        }
+
+        // middle score, the average of the two middle scores for an even count
+        private double median() {
+            int lower = kth((graded - 1) / 2);
+            int upper = kth(graded / 2);
+            return (lower + upper) / 2.0;
+        }
+
+        // score at 0 based position k in sorted order
+        private int kth(int k) {
+            int seen = 0;
+            for (int score = 0; score <= 100; score++) {
+                seen += histogram[score];
+                if (seen > k) {
+                    return score;
+                }
+            }
+            return 100;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.cst438.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/*
+ * JwtDecoder that remembers tokens it has already verified.
+ * The client sends the same token on every request until it expires, so only the
+ * first request pays for parsing and the RSA signature check.
+ * Entries are keyed by a SHA-256 hash of the token and expire at the token's exp claim.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Timer verifyTimer;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return untilExpiry(jwt);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return untilExpiry(jwt);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt");
+        this.verifyTimer = Timer.builder("gradebook.jwt.verify")
+                .description("time to parse and verify a token not found in the cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt != null) {
+            return jwt;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            jwt = delegate.decode(token);
+        } finally {
+            sample.stop(verifyTimer);
+        }
+        cache.put(key, jwt);
+        return jwt;
+    }
+
+    private static long untilExpiry(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
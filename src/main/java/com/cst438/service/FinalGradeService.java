@@ -0,0 +1,301 @@
+package com.cst438.service;
+
+import com.cst438.dto.FinalGradeDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Computes the final grade of every enrollment of a section, or of every section in
+ * a term, from the assignment scores and the category weights of the section.
+ *
+ * The scores are read with one query into a dense int matrix per section, -1 for an
+ * ungraded cell.  The percentage of a student is the weighted average of the mean
+ * score of each category; ungraded assignments, and categories with no graded
+ * assignment, are left out.  A section without categories weighs all assignments
+ * equally, assignments left out of the categories of a section are not counted.
+ * Rows are computed in parallel on a fork-join pool, the changed letter grades are
+ * written with one batched update and sent to the registrar in one message.  A grade
+ * entered by hand that is not one of the computed letters (B+, I, W) is not
+ * overwritten, it is returned as enteredGrade.  Scores waiting in the
+ * GradeWriteBuffer are written first.
+ */
+@Service
+public class FinalGradeService {
+
+    private static final String SECTION_SCOPE = "x.section_no = ?";
+    private static final String TERM_SCOPE = "x.section_no in (select s.section_no from section s " +
+            "join term t on t.term_id = s.term_id where t.tyear = ? and t.semester = ?)";
+
+    // a task computes this many score cells before it is split
+    private static final int SPLIT_CELLS = 16 * 1024;
+
+    private static final double[] LETTER_MIN = {90, 80, 70, 60};
+    private static final String[] LETTERS = {"A", "B", "C", "D"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegistrarServiceProxy registrar;
+    private final ResourceVersionService versionService;
+    private final GradeWriteBuffer gradeBuffer;
+    private final ForkJoinPool pool;
+
+    public FinalGradeService(
+            JdbcTemplate jdbcTemplate,
+            RegistrarServiceProxy registrar,
+            ResourceVersionService versionService,
+            GradeWriteBuffer gradeBuffer,
+            @Value("${gradebook.final-grade.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.registrar = registrar;
+        this.versionService = versionService;
+        this.gradeBuffer = gradeBuffer;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Transactional
+    public List<FinalGradeDTO> computeSection(int sectionNo) {
+        return compute(SECTION_SCOPE, sectionNo);
+    }
+
+    @Transactional
+    public List<FinalGradeDTO> computeTerm(int year, String semester) {
+        return compute(TERM_SCOPE, year, semester);
+    }
+
+    private List<FinalGradeDTO> compute(String scope, Object... args) {
+        Collection<SectionMatrix> sections = load(scope, args);
+
+        List<RowRange> tasks = new ArrayList<>();
+        for (SectionMatrix m : sections) {
+            tasks.add(new RowRange(m, 0, m.enrollmentIds.length));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+
+        List<FinalGradeDTO> results = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Map<String, Object>> messages = new ArrayList<>();
+        Set<Integer> changedSections = new HashSet<>();
+        for (SectionMatrix m : sections) {
+            for (int r = 0; r < m.enrollmentIds.length; r++) {
+                double percentage = m.percentages[r];
+                String entered = m.grades[r] != null && !isLetter(m.grades[r]) ? m.grades[r] : null;
+                if (Double.isNaN(percentage)) {
+                    results.add(new FinalGradeDTO(m.enrollmentIds[r], m.sectionNo, m.emails[r], null, null, entered));
+                    continue;
+                }
+                String letter = letter(percentage);
+                results.add(new FinalGradeDTO(m.enrollmentIds[r], m.sectionNo, m.emails[r],
+                        Math.round(percentage * 100) / 100.0, letter, entered));
+                if (entered == null && !letter.equals(m.grades[r])) {
+                    changedSections.add(m.sectionNo);
+                    updates.add(new Object[]{letter, m.enrollmentIds[r]});
+                    Map<String, Object> message = new HashMap<>();
+                    message.put("enrollmentId", m.enrollmentIds[r]);
+                    message.put("grade", letter);
+                    messages.add(message);
+                }
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update enrollment set grade = ? where enrollment_id = ?", updates);
+            // same message as an instructor entering the grades with PUT /enrollments
+            registrar.sendMessage("updateEnrollments", messages);
+        }
+        changedSections.forEach(versionService::sectionChanged);
+        return results;
+    }
+
+    static String letter(double percentage) {
+        for (int i = 0; i < LETTER_MIN.length; i++) {
+            if (percentage >= LETTER_MIN[i]) {
+                return LETTERS[i];
+            }
+        }
+        return "F";
+    }
+
+    // a grade this class computes, any other grade was entered by hand
+    static boolean isLetter(String grade) {
+        return grade.equals("F") || Arrays.asList(LETTERS).contains(grade);
+    }
+
+    // categories, assignments, enrollments and scores of the sections in scope, one query each
+    private Collection<SectionMatrix> load(String scope, Object... args) {
+        Map<Integer, List<int[]>> categories = new HashMap<>();
+        jdbcTemplate.query("select x.section_no, x.category_id, x.weight from assignment_category x where " + scope,
+                rs -> {
+                    categories.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>())
+                            .add(new int[]{rs.getInt(2), rs.getInt(3)});
+                },
+                args);
+        Map<Integer, List<int[]>> assignments = new HashMap<>();
+        jdbcTemplate.query("select x.section_no, x.assignment_id, x.category_id from assignment x where " + scope,
+                rs -> {
+                    // category 0 is no category, ids start at 1
+                    assignments.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>())
+                            .add(new int[]{rs.getInt(2), rs.getInt(3)});
+                },
+                args);
+        Map<Integer, List<Object[]>> enrollments = new TreeMap<>();
+        jdbcTemplate.query("select x.section_no, x.enrollment_id, u.email, x.grade from enrollment x " +
+                        "join user_table u on u.id = x.user_id where " + scope + " order by x.section_no, u.name",
+                rs -> {
+                    enrollments.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>())
+                            .add(new Object[]{rs.getInt(2), rs.getString(3), rs.getString(4)});
+                },
+                args);
+
+        Map<Integer, SectionMatrix> sections = new LinkedHashMap<>();
+        Map<Integer, SectionMatrix> byEnrollment = new HashMap<>();
+        enrollments.forEach((sectionNo, rows) -> {
+            SectionMatrix m = new SectionMatrix(sectionNo, rows,
+                    assignments.getOrDefault(sectionNo, List.of()), categories.getOrDefault(sectionNo, List.of()));
+            sections.put(sectionNo, m);
+            for (int enrollmentId : m.enrollmentIds) {
+                byEnrollment.put(enrollmentId, m);
+            }
+        });
+
+        // scores waiting in the write-behind buffer over the stored ones, a buffered score
+        // may be set on a grade stored without one
+        String graded = gradeBuffer.isEmpty() ? "g.score is not null and " : "";
+        jdbcTemplate.query("select g.enrollment_id, g.assignment_id, g.score, g.grade_id from grade g " +
+                        "join enrollment x on x.enrollment_id = g.enrollment_id where " + graded + scope,
+                rs -> {
+                    SectionMatrix m = byEnrollment.get(rs.getInt(1));
+                    Integer score = gradeBuffer.score(rs.getInt(4), rs.getObject(3, Integer.class));
+                    if (m != null && score != null) {
+                        m.set(rs.getInt(1), rs.getInt(2), score);
+                    }
+                },
+                args);
+        return sections.values();
+    }
+
+    // the scores of one section, a row per enrollment and a column per assignment
+    static final class SectionMatrix {
+        final int sectionNo;
+        final int[] enrollmentIds;
+        final String[] emails;
+        final String[] grades;
+        final int columns;
+        final int[] columnCategory;     // index into categoryWeight, -1 when not counted
+        final double[] categoryWeight;
+        final int[] scores;             // row major, -1 when ungraded
+        final double[] percentages;     // NaN when nothing is graded
+        private final Map<Integer, Integer> rowOf = new HashMap<>();
+        private final Map<Integer, Integer> columnOf = new HashMap<>();
+
+        SectionMatrix(int sectionNo, List<Object[]> rows, List<int[]> assignments, List<int[]> categories) {
+            this.sectionNo = sectionNo;
+            int n = rows.size();
+            enrollmentIds = new int[n];
+            emails = new String[n];
+            grades = new String[n];
+            for (int r = 0; r < n; r++) {
+                Object[] row = rows.get(r);
+                enrollmentIds[r] = (Integer) row[0];
+                emails[r] = (String) row[1];
+                grades[r] = (String) row[2];
+                rowOf.put(enrollmentIds[r], r);
+            }
+
+            Map<Integer, Integer> categoryIndex = new HashMap<>();
+            if (categories.isEmpty()) {
+                categoryWeight = new double[]{1};
+            } else {
+                categoryWeight = new double[categories.size()];
+                for (int k = 0; k < categories.size(); k++) {
+                    categoryIndex.put(categories.get(k)[0], k);
+                    categoryWeight[k] = categories.get(k)[1];
+                }
+            }
+            columns = assignments.size();
+            columnCategory = new int[columns];
+            for (int c = 0; c < columns; c++) {
+                int[] assignment = assignments.get(c);
+                columnOf.put(assignment[0], c);
+                columnCategory[c] = categories.isEmpty() ? 0 : categoryIndex.getOrDefault(assignment[1], -1);
+            }
+
+            scores = new int[n * columns];
+            Arrays.fill(scores, -1);
+            percentages = new double[n];
+        }
+
+        void set(int enrollmentId, int assignmentId, int score) {
+            Integer r = rowOf.get(enrollmentId);
+            Integer c = columnOf.get(assignmentId);
+            if (r != null && c != null) {
+                scores[r * columns + c] = score;
+            }
+        }
+
+        void compute(int from, int to) {
+            double[] sum = new double[categoryWeight.length];
+            int[] count = new int[categoryWeight.length];
+            for (int r = from; r < to; r++) {
+                Arrays.fill(sum, 0);
+                Arrays.fill(count, 0);
+                int base = r * columns;
+                for (int c = 0; c < columns; c++) {
+                    int score = scores[base + c];
+                    int k = columnCategory[c];
+                    if (score >= 0 && k >= 0) {
+                        sum[k] += score;
+                        count[k]++;
+                    }
+                }
+                double weighted = 0;
+                double weights = 0;
+                for (int k = 0; k < categoryWeight.length; k++) {
+                    if (count[k] > 0) {
+                        weighted += categoryWeight[k] * sum[k] / count[k];
+                        weights += categoryWeight[k];
+                    }
+                }
+                percentages[r] = weights > 0 ? weighted / weights : Double.NaN;
+            }
+        }
+    }
+
+    // rows [from, to) of a section, split in halves until a task is small enough
+    private static final class RowRange extends RecursiveAction {
+        private final SectionMatrix matrix;
+        private final int from;
+        private final int to;
+
+        RowRange(SectionMatrix matrix, int from, int to) {
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 || (long) (to - from) * Math.max(1, matrix.columns) <= SPLIT_CELLS) {
+                matrix.compute(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowRange(matrix, from, middle), new RowRange(matrix, middle, to));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
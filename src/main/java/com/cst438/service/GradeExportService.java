@@ -0,0 +1,158 @@
+package com.cst438.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/*
+ * Writes grade rows of a section or a whole term to an output stream as CSV or
+ * newline delimited JSON.  Rows are read with a forward only cursor and written as
+ * they arrive, nothing is collected in memory so memory use does not depend on the
+ * size of the export.
+ *
+ * One row per (enrollment, assignment) with the enrollment's final grade and the
+ * assignment score, null when the assignment has not been graded.  A score waiting in
+ * the GradeWriteBuffer is written instead of the stored one.  Every enrolled student
+ * is listed, a student of a section without assignments has one row with empty
+ * assignment columns.
+ *
+ * A CSV text cell starting with a character a spreadsheet reads as a formula is
+ * prefixed with a single quote.
+ */
+@Service
+public class GradeExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String SELECT =
+            "select s.section_no, c.course_id, s.section_id, t.tyear, t.semester, " +
+            "e.enrollment_id, u.id, u.name, u.email, e.grade, a.assignment_id, a.title, a.due_date, g.score, g.grade_id " +
+            "from section s join term t on t.term_id = s.term_id join course c on c.course_id = s.course_id " +
+            "join enrollment e on e.section_no = s.section_no join user_table u on u.id = e.user_id " +
+            "left join assignment a on a.section_no = s.section_no " +
+            "left join grade g on g.assignment_id = a.assignment_id and g.enrollment_id = e.enrollment_id ";
+
+    private static final String ORDER = " order by s.section_no, e.enrollment_id, a.assignment_id";
+
+    private static final String[] COLUMNS = {"secNo", "courseId", "secId", "year", "semester",
+            "enrollmentId", "studentId", "name", "email", "finalGrade",
+            "assignmentId", "title", "dueDate", "score"};
+    // grade_id follows the exported columns
+    private static final int SCORE = 14;
+    private static final int GRADE_ID = 15;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GradeWriteBuffer gradeBuffer;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // a JdbcTemplate of its own so the fetch size does not apply to other queries.
+    // for MySQL the connection needs useCursorFetch=true for the fetch size to be used.
+    public GradeExportService(
+            DataSource dataSource,
+            GradeWriteBuffer gradeBuffer,
+            @Value("${gradebook.export.fetch-size:500}") int fetchSize) {
+        this.gradeBuffer = gradeBuffer;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void exportSection(int sectionNo, Format format, OutputStream out) throws IOException {
+        export(SELECT + "where s.section_no = ?" + ORDER, format, out, sectionNo);
+    }
+
+    public void exportTerm(int year, String semester, Format format, OutputStream out) throws IOException {
+        export(SELECT + "where t.tyear = ? and t.semester = ?" + ORDER, format, out, year, semester);
+    }
+
+    private void export(String sql, Format format, OutputStream out, Object... args) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        try {
+            if (format == Format.CSV) {
+                writer.write(String.join(",", COLUMNS));
+                writer.write('\n');
+                jdbcTemplate.query(sql, (RowCallbackHandler) rs -> writeCsv(rs, writer), args);
+                writer.flush();
+            } else {
+                JsonGenerator json = jsonFactory.createGenerator(writer);
+                json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                jdbcTemplate.query(sql, (RowCallbackHandler) rs -> writeJson(rs, json), args);
+                json.writeRaw('\n');
+                json.flush();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object value(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (column != SCORE || gradeBuffer.isEmpty()) {
+            return value;
+        }
+        int gradeId = rs.getInt(GRADE_ID);
+        return rs.wasNull() ? value : gradeBuffer.score(gradeId, (Integer) value);
+    }
+
+    private void writeCsv(ResultSet rs, Writer writer) throws SQLException {
+        try {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = value(rs, i);
+                if (value instanceof String text) {
+                    writer.write(csv(text));
+                } else if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            // client went away, stop reading
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJson(ResultSet rs, JsonGenerator json) throws SQLException {
+        try {
+            json.writeStartObject();
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                Object value = value(rs, i);
+                json.writeFieldName(COLUMNS[i - 1]);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Number n) {
+                    json.writeNumber(n.intValue());
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // quote a field that contains a separator, quote or line break.
+    // a text starting with = + - @ tab or carriage return is prefixed with '
+    // so a spreadsheet shows it as text instead of evaluating it.
+    private static String csv(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
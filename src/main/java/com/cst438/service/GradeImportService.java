@@ -0,0 +1,268 @@
+package com.cst438.service;
+
+import com.cst438.dto.GradeImportResultDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/*
+ * Imports assignment scores from a CSV file.
+ *
+ * The file is read one line at a time.  The first line names the columns: email and
+ * score, plus assignmentId for a section import.  An empty score clears the grade.
+ * Students are resolved against the section roster, loaded with one query, and emails
+ * are compared without case.  The Grade rows of the section are created first by the
+ * GradeRosterService, in a transaction of their own so a request creating the same rows
+ * at the same time does not fail the upload, and every valid row is a plain update;
+ * updates are sent as JDBC batches of batch-size rows in one transaction.
+ *
+ * A row that cannot be imported (unknown student, assignment not in the section, score
+ * outside 0-100) is reported with its line number and the other rows are still saved.
+ * A quoted field that is not closed ends the import at that row.
+ * Scores waiting in the GradeWriteBuffer are written first so they do not overwrite
+ * the imported ones later.
+ */
+@Service
+public class GradeImportService {
+
+    private static final int MAX_ERRORS = 1000;
+    private static final String UPDATE = "update grade set score = ? where assignment_id = ? and enrollment_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GradeRosterService rosterService;
+    private final TransactionTemplate transactionTemplate;
+    private final AssignmentStatisticsService statisticsService;
+    private final ResourceVersionService versionService;
+    private final GradeWriteBuffer gradeBuffer;
+    private final int batchSize;
+
+    public GradeImportService(
+            JdbcTemplate jdbcTemplate,
+            GradeRosterService rosterService,
+            PlatformTransactionManager transactionManager,
+            AssignmentStatisticsService statisticsService,
+            ResourceVersionService versionService,
+            GradeWriteBuffer gradeBuffer,
+            @Value("${gradebook.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rosterService = rosterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statisticsService = statisticsService;
+        this.versionService = versionService;
+        this.gradeBuffer = gradeBuffer;
+        this.batchSize = batchSize;
+    }
+
+    // columns email, score
+    public GradeImportResultDTO importAssignment(int assignmentId, int sectionNo, Reader csv) throws IOException {
+        rosterService.createMissingGrades(assignmentId, sectionNo);
+        return inTransaction(() -> {
+            gradeBuffer.flush();
+            // the previous scores are not read, statistics are reloaded after the import
+            statisticsService.invalidate(assignmentId);
+            versionService.assignmentsChanged(sectionNo);
+            return importRows(sectionNo, Set.of(assignmentId), assignmentId, csv);
+        });
+    }
+
+    // columns email, assignmentId, score
+    public GradeImportResultDTO importSection(int sectionNo, Reader csv) throws IOException {
+        rosterService.createMissingGradesForSection(sectionNo);
+        return inTransaction(() -> {
+            gradeBuffer.flush();
+            statisticsService.invalidateSection(sectionNo);
+            versionService.assignmentsChanged(sectionNo);
+            Set<Integer> assignments = new HashSet<>(jdbcTemplate.queryForList(
+                    "select assignment_id from assignment where section_no = ?", Integer.class, sectionNo));
+            return importRows(sectionNo, assignments, null, csv);
+        });
+    }
+
+    private interface Import {
+        GradeImportResultDTO run() throws IOException;
+    }
+
+    // the file is read inside the transaction, an IOException rolls it back and is rethrown
+    private GradeImportResultDTO inTransaction(Import work) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private GradeImportResultDTO importRows(int sectionNo, Set<Integer> assignments, Integer assignmentId, Reader csv)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(csv);
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IllegalArgumentException("file is empty");
+        }
+        // spreadsheet programs start a UTF-8 file with a byte order mark
+        if (headerLine.startsWith("\uFEFF")) {
+            headerLine = headerLine.substring(1);
+        }
+        List<String> header = parseLine(headerLine).stream().map(h -> h.trim().toLowerCase()).toList();
+        int emailColumn = column(header, "email");
+        int scoreColumn = column(header, "score");
+        int assignmentColumn = assignmentId == null ? column(header, "assignmentid") : -1;
+
+        Map<String, Integer> roster = roster(sectionNo);
+        List<GradeImportResultDTO.RowError> errors = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        int rows = 0;
+        int updated = 0;
+        int lineNo = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            rows++;
+            // a quoted field may contain line breaks, the row goes on until the quote is closed
+            int rowLine = lineNo;
+            boolean open = quoteOpen(line, false);
+            String next;
+            while (open && (next = reader.readLine()) != null) {
+                lineNo++;
+                line = line + "\n" + next;
+                open = quoteOpen(next, true);
+            }
+            if (open) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(new GradeImportResultDTO.RowError(rowLine, "quoted field is not closed"));
+                }
+                break;
+            }
+            List<String> fields = parseLine(line);
+            String error = null;
+            String email = field(fields, emailColumn);
+            Integer enrollmentId = roster.get(email.toLowerCase(Locale.ROOT));
+            Integer assignment = assignmentId;
+            Integer score = null;
+            if (enrollmentId == null) {
+                error = "student " + email + " is not enrolled in the section";
+            } else {
+                try {
+                    if (assignment == null) {
+                        assignment = Integer.valueOf(field(fields, assignmentColumn));
+                    }
+                    String scoreText = field(fields, scoreColumn);
+                    score = scoreText.isEmpty() ? null : Integer.valueOf(scoreText);
+                    if (!assignments.contains(assignment)) {
+                        error = "assignment " + assignment + " is not in the section";
+                    } else if (score != null && (score < 0 || score > 100)) {
+                        // same range as the check constraint on grade.score
+                        error = "score must be between 0 and 100";
+                    }
+                } catch (NumberFormatException e) {
+                    error = "not a number: " + e.getMessage();
+                }
+            }
+            if (error != null) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(new GradeImportResultDTO.RowError(rowLine, error));
+                }
+                continue;
+            }
+            batch.add(new Object[]{score, assignment, enrollmentId});
+            if (batch.size() == batchSize) {
+                updated += flush(batch);
+                batch.clear();
+            }
+        }
+        updated += flush(batch);
+        return new GradeImportResultDTO(rows, updated, errors);
+    }
+
+    // lower case student email to enrollment id for the section
+    private Map<String, Integer> roster(int sectionNo) {
+        Map<String, Integer> roster = new HashMap<>();
+        jdbcTemplate.query("select u.email, e.enrollment_id from enrollment e join user_table u on u.id = e.user_id " +
+                        "where e.section_no = ?",
+                rs -> {
+                    roster.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getInt(2));
+                },
+                sectionNo);
+        return roster;
+    }
+
+    private int flush(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE, batch)) {
+            // some drivers report SUCCESS_NO_INFO (-2) for a batched statement
+            updated += count == java.sql.Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return updated;
+    }
+
+    private static int column(List<String> header, String name) {
+        int index = header.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("missing column " + name);
+        }
+        return index;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    // true when a quoted field is still open at the end of text.  open tells whether
+    // one was open at its start.  a doubled quote inside a field flips the state twice.
+    static boolean quoteOpen(String text, boolean open) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    // split one CSV row, a quoted field may contain commas, doubled quotes and line breaks
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
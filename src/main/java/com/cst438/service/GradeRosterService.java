@@ -0,0 +1,70 @@
+package com.cst438.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * Creates the null score Grade rows of a section roster that do not exist yet.
+ *
+ * One set based insert regardless of section size, committed in its own transaction.
+ * Two requests for the same assignment may insert the same rows; the unique
+ * (assignment_id, enrollment_id) constraint rejects the second insert, which is
+ * then run again and finds the rows committed by the first.  Only a duplicate key
+ * is tolerated, any other integrity failure is thrown.
+ *
+ * Call it before the caller's own transaction starts, a new transaction inside
+ * another one would hold a second connection.
+ */
+@Service
+public class GradeRosterService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String INSERT_FOR_ASSIGNMENT = "insert into grade (enrollment_id, assignment_id, score) " +
+            "select e.enrollment_id, ?, null from enrollment e " +
+            "where e.section_no = ? and not exists " +
+            "(select 1 from grade g where g.assignment_id = ? and g.enrollment_id = e.enrollment_id)";
+
+    private static final String INSERT_FOR_SECTION = "insert into grade (enrollment_id, assignment_id, score) " +
+            "select e.enrollment_id, a.assignment_id, null from enrollment e " +
+            "join assignment a on a.section_no = e.section_no " +
+            "where e.section_no = ? and not exists " +
+            "(select 1 from grade g where g.assignment_id = a.assignment_id and g.enrollment_id = e.enrollment_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public GradeRosterService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // grades of one assignment for every enrollment in the section
+    public int createMissingGrades(int assignmentId, int sectionNo) {
+        return insert(INSERT_FOR_ASSIGNMENT, assignmentId, sectionNo, assignmentId);
+    }
+
+    // grades of every assignment of the section for every enrollment in the section
+    public int createMissingGradesForSection(int sectionNo) {
+        return insert(INSERT_FOR_SECTION, sectionNo);
+    }
+
+    private int insert(String sql, Object... args) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer inserted = transactionTemplate.execute(status -> jdbcTemplate.update(sql, args));
+                return inserted == null ? 0 : inserted;
+            } catch (DuplicateKeyException e) {
+                // a concurrent request inserted some of the same grades first
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.cst438.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Optional write-behind buffer for the scores entered with PUT /grades, used when
+ * gradebook.grade-buffer.enabled=true.
+ *
+ * The grading UI saves after every cell edit, so the same grades are written many
+ * times within a few seconds.  In write-behind mode the request is checked as before
+ * and the new scores are put in this buffer instead of the grade rows.  The buffer is
+ * a ConcurrentHashMap keyed by grade id, writers do not take a lock and a later score
+ * of a grade replaces the earlier one, so only the last score is written.  A score is
+ * put in the buffer when the request's transaction commits, a rolled back request
+ * leaves nothing behind.
+ *
+ * The buffer is flushed every flush-interval-ms, as soon as it holds flush-entries
+ * grades, and when the application stops.  A flush writes the scores as JDBC batches
+ * of batch-size rows, in the caller's transaction when there is one so a request that
+ * flushes does not need a second connection.  An entry is removed after the commit,
+ * and only if it was not replaced while it was written.  A failed or rolled back flush
+ * keeps the entries and is tried again at the next interval.
+ *
+ * The buffer holds at most max-entries grades.  PUT /grades reserves room for its
+ * grades before its transaction starts.  When the buffer is full the request wakes
+ * the background flush and waits up to max-wait-ms for room, holding no connection,
+ * so writers slow down to the speed of the database instead of the buffer growing.
+ *
+ * Readers of scores (grade list, gradebook, student assignments, statistics, export,
+ * final grades)
+ * read the grade ids with the scores and show the buffered scores over the stored ones
+ * with score(), they do not write the buffer.  The CSV import flushes the buffer first
+ * so the buffered scores do not overwrite the imported ones.  Scores still in the buffer
+ * are lost if the process is killed, so the mode is off by default.
+ */
+@Service
+public class GradeWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(GradeWriteBuffer.class);
+    private static final String UPDATE = "update grade set score = ? where grade_id = ?";
+
+    // a map value cannot be null, a cleared score is a Pending with a null score
+    private record Pending(Integer score) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int flushEntries;
+    private final int batchSize;
+    private final long maxWaitMs;
+
+    private final int maxEntries;
+    private final Map<Integer, Pending> buffer = new ConcurrentHashMap<>();
+    // room for grades of requests that have not committed yet, guarded by capacityLock
+    private int reserved;
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition roomFreed = capacityLock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "grade-buffer-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Counter coalesced;
+
+    public GradeWriteBuffer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${gradebook.grade-buffer.enabled:false}") boolean enabled,
+            @Value("${gradebook.grade-buffer.flush-entries:500}") int flushEntries,
+            @Value("${gradebook.grade-buffer.max-entries:10000}") int maxEntries,
+            @Value("${gradebook.grade-buffer.batch-size:500}") int batchSize,
+            @Value("${gradebook.grade-buffer.max-wait-ms:5000}") long maxWaitMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.flushEntries = flushEntries;
+        this.batchSize = batchSize;
+        this.maxWaitMs = maxWaitMs;
+        this.maxEntries = maxEntries;
+        Gauge.builder("gradebook.grade-buffer.size", buffer, Map::size)
+                .description("scores waiting in the write-behind buffer")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("gradebook.grade-buffer.coalesced")
+                .description("buffered scores replaced by a later score before they were written")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // the score of a grade as the next read should see it, stored when nothing is buffered
+    public Integer score(int gradeId, Integer stored) {
+        Pending pending = buffer.get(gradeId);
+        return pending == null ? stored : pending.score();
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    // called before the request's transaction starts, waits until count more grades fit.
+    // a request with more grades than max-entries waits for an empty buffer.
+    public void reserve(int count) {
+        int n = Math.min(count, maxEntries);
+        long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        capacityLock.lock();
+        try {
+            while (buffer.size() + reserved + n > maxEntries) {
+                requestFlush();
+                if (remaining <= 0) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many unsaved grades, try again");
+                }
+                remaining = roomFreed.awaitNanos(remaining);
+            }
+            reserved += n;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many unsaved grades, try again");
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    // called when the request's transaction has ended, committed or not
+    public void release(int count) {
+        capacityLock.lock();
+        try {
+            reserved -= Math.min(count, maxEntries);
+            roomFreed.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    // the new score of a grade, null to clear it.  the caller has checked the grade exists
+    // and reserved room for it.  the score is buffered when the transaction commits.
+    // onConflict runs then if the score it replaces is not expected, the score the caller read.
+    public void write(int gradeId, Integer expected, Integer score, Runnable onConflict) {
+        AfterCommit.run(() -> {
+            Pending previous = buffer.put(gradeId, new Pending(score));
+            if (previous != null) {
+                coalesced.increment();
+                if (!Objects.equals(previous.score(), expected)) {
+                    onConflict.run();
+                }
+            }
+            if (buffer.size() >= flushEntries) {
+                requestFlush();
+            }
+        });
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushPending();
+            });
+        }
+    }
+
+    // write the buffered scores, returns the number of grades written
+    public int flush() {
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            List<Map.Entry<Integer, Pending>> entries = new ArrayList<>(buffer.size());
+            for (Map.Entry<Integer, Pending> e : buffer.entrySet()) {
+                entries.add(Map.entry(e.getKey(), e.getValue()));
+            }
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> batch = new ArrayList<>(batchSize);
+                for (Map.Entry<Integer, Pending> e : entries) {
+                    batch.add(new Object[]{e.getValue().score(), e.getKey()});
+                    if (batch.size() == batchSize) {
+                        jdbcTemplate.batchUpdate(UPDATE, batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE, batch);
+                }
+                AfterCommit.run(() -> removeWritten(entries));
+            });
+            return entries.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void removeWritten(List<Map.Entry<Integer, Pending>> entries) {
+        for (Map.Entry<Integer, Pending> e : entries) {
+            buffer.remove(e.getKey(), e.getValue());
+        }
+        capacityLock.lock();
+        try {
+            roomFreed.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gradebook.grade-buffer.flush-interval-ms:1000}")
+    public void flushPending() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("flush of {} buffered grades failed, retry at the next interval: {}", buffer.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -0,0 +1,114 @@
+package com.cst438.service;
+
+import com.cst438.domain.OutboxMessage;
+import com.cst438.domain.OutboxMessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * Drains the outbox table written by RegistrarServiceProxy.sendMessage and
+ * publishes the messages to the registrar queue in batches.
+ * A batch is deleted from the outbox only after the broker has confirmed it,
+ * so a message may be delivered more than once but is never lost.
+ * When the broker is unavailable publishing is retried with exponential backoff.
+ */
+@Service
+public class OutboxPublisher {
+
+    public static final String REGISTRAR_QUEUE = "registrar_service";
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxPublisher.class);
+
+    private final OutboxMessageRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final RegistrarMessageCodec codec;
+    private final String encoding;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final long maxBackoffMs;
+
+    private final Timer publishLatency;
+
+    private long backoffMs = 0;
+    private Instant nextAttempt = Instant.EPOCH;
+
+    public OutboxPublisher(
+            OutboxMessageRepository outboxRepository,
+            RabbitTemplate rabbitTemplate,
+            RegistrarMessageCodec codec,
+            MeterRegistry meterRegistry,
+            @Value("${gradebook.registrar.encoding:text/plain}") String encoding,
+            @Value("${gradebook.outbox.batch-size:100}") int batchSize,
+            @Value("${gradebook.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+            @Value("${gradebook.outbox.max-backoff-ms:60000}") long maxBackoffMs) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.codec = codec;
+        this.encoding = encoding;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.maxBackoffMs = maxBackoffMs;
+        // counted when the gauge is read, so it also covers the time between polls
+        Gauge.builder("gradebook.outbox.depth", outboxRepository, OutboxMessageRepository::count)
+                .description("registrar messages waiting in the outbox")
+                .register(meterRegistry);
+        this.publishLatency = Timer.builder("gradebook.outbox.publish.latency")
+                .description("time from outbox write to broker confirm")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${gradebook.outbox.poll-interval-ms:500}")
+    public void publishPending() {
+        if (Instant.now().isBefore(nextAttempt)) {
+            return;
+        }
+        List<OutboxMessage> batch;
+        do {
+            batch = outboxRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!publish(batch)) {
+                return;
+            }
+            outboxRepository.deleteByIdIn(batch.stream().map(OutboxMessage::getId).toList());
+            Instant confirmed = Instant.now();
+            for (OutboxMessage m : batch) {
+                publishLatency.record(Duration.between(m.getCreatedAt(), confirmed));
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // publish the batch on one channel and wait for the broker to confirm all of it
+    private boolean publish(List<OutboxMessage> batch) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (OutboxMessage m : batch) {
+                    operations.send(REGISTRAR_QUEUE, codec.encodeJson(m.getCmd(), m.getPayload(), encoding));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+            backoffMs = 0;
+            return true;
+        } catch (Exception e) {
+            backoffMs = backoffMs == 0 ? 1000 : Math.min(backoffMs * 2, maxBackoffMs);
+            nextAttempt = Instant.now().plusMillis(backoffMs);
+            log.warn("publish of {} outbox messages failed, retry in {} ms: {}", batch.size(), backoffMs, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.cst438.service;
+
+import com.cst438.domain.SectionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/*
+ * Bounded cache of SectionInfo snapshots (section, course and term data).
+ * This data only changes when the registrar sends a section or course message,
+ * RegistrarServiceProxy invalidates the affected entries when it applies one.
+ * Entries also expire after a TTL so term changes made outside the registrar are picked up.
+ */
+@Service
+public class ReferenceDataCache {
+
+    private final SectionRepository sectionRepository;
+    private final Cache<Integer, SectionInfo> sections;
+
+    public ReferenceDataCache(
+            SectionRepository sectionRepository,
+            MeterRegistry meterRegistry,
+            @Value("${gradebook.cache.sections.max-size:5000}") long maxSize,
+            @Value("${gradebook.cache.sections.ttl:10m}") Duration ttl) {
+        this.sectionRepository = sectionRepository;
+        this.sections = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sections, "sections");
+    }
+
+    // returns null if the section does not exist
+    public SectionInfo getSection(int sectionNo) {
+        return sections.get(sectionNo, no -> sectionRepository.findById(no).map(SectionInfo::of).orElse(null));
+    }
+
+    public void invalidateSection(int sectionNo) {
+        sections.invalidate(sectionNo);
+    }
+
+    // course title and credits are part of every section snapshot of the course
+    public void invalidateCourse(String courseId) {
+        sections.asMap().values().removeIf(s -> Objects.equals(s.courseId(), courseId));
+    }
+
+    public void invalidateAll() {
+        sections.invalidateAll();
+    }
+}
@@ -0,0 +1,201 @@
+package com.cst438.service;
+
+import com.cst438.domain.RefreshToken;
+import com.cst438.domain.RefreshTokenRepository;
+import com.cst438.domain.User;
+import com.cst438.domain.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/*
+ * Issues and rotates refresh tokens.
+ *
+ * A refresh token is a random 256 bit value given to the client at login.  It can be
+ * exchanged once for a new access token and a new refresh token; the old one is revoked.
+ * All tokens descended from one login belong to the same family.  Presenting a token that
+ * was already used means it was copied, so the whole family is revoked and the user
+ * must log in again.
+ *
+ * Only the SHA-256 hash of a token is kept, in the refresh_token table.  Whether a token
+ * is revoked is decided by the database: a rotation revokes the token with a conditional
+ * update, and an update count of 0 means another request, on this or another instance,
+ * used the token first.  The fields of a token that never change (family, user, expiry)
+ * are cached in memory, up to a maximum size and until the token expires, so a rotation
+ * does not read the row first.
+ *
+ * Each rotation reads the user again and takes the scope from the user's current type, so
+ * a user the registrar deleted can no longer refresh and a changed type takes effect at the
+ * next refresh.  A family cannot be refreshed past max-lifetime after its login.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository repository;
+    private final UserRepository userRepository;
+    private final Duration ttl;
+    private final Duration maxLifetime;
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Entry> tokens;
+
+    public RefreshTokenService(
+            RefreshTokenRepository repository,
+            UserRepository userRepository,
+            @Value("${gradebook.jwt.refresh-token-ttl:12h}") Duration ttl,
+            @Value("${gradebook.jwt.refresh-token-max-lifetime:7d}") Duration maxLifetime,
+            @Value("${gradebook.jwt.refresh-token-cache.max-size:10000}") long maxSize) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.maxLifetime = maxLifetime;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), entry.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // start a new token family for a user who has just logged in with a password
+    public String issue(String email, String scope) {
+        return issue(email, scope, newToken(), Instant.now());
+    }
+
+    // exchange a refresh token for the next token of its family
+    public Rotation rotate(String token) {
+        if (token == null || token.isBlank()) {
+            throw new BadCredentialsException("refresh token missing");
+        }
+        String hash = hash(token);
+        Entry entry = lookup(hash);
+        Instant now = Instant.now();
+        if (entry == null || entry.expiresAt().isBefore(now)
+                || entry.familyIssuedAt().plus(maxLifetime).isBefore(now)) {
+            throw new BadCredentialsException("refresh token invalid or expired");
+        }
+        // the update only succeeds for one of two requests presenting the same token
+        if (repository.revokeIfActive(hash) == 0) {
+            log.warn("refresh token reused for {}, revoking token family", entry.email());
+            revokeFamily(entry.familyId());
+            throw new BadCredentialsException("refresh token already used");
+        }
+        tokens.invalidate(hash);
+        User user = userRepository.findByEmail(entry.email());
+        if (user == null) {
+            log.warn("refresh token presented for deleted user {}, revoking token family", entry.email());
+            revokeFamily(entry.familyId());
+            throw new BadCredentialsException("user no longer exists");
+        }
+        // the same authority the password login grants, see UserDetailsServiceImpl
+        String scope = "ROLE_" + user.getType();
+        String next = issue(entry.email(), scope, entry.familyId(), entry.familyIssuedAt());
+        return new Rotation(entry.email(), scope, next);
+    }
+
+    // sign out: the token and every token of its family stop working
+    public void revoke(String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        Entry entry = lookup(hash(token));
+        if (entry != null) {
+            revokeFamily(entry.familyId());
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purgeExpired() {
+        tokens.cleanUp();
+        repository.deleteExpired(Instant.now());
+    }
+
+    private String issue(String email, String scope, String familyId, Instant familyIssuedAt) {
+        String token = newToken();
+        String hash = hash(token);
+        // the last token of a family expires when the family does
+        Instant expiresAt = Instant.now().plus(ttl);
+        Instant familyEnd = familyIssuedAt.plus(maxLifetime);
+        Entry entry = new Entry(familyId, email, familyIssuedAt, expiresAt.isBefore(familyEnd) ? expiresAt : familyEnd);
+        RefreshToken row = new RefreshToken();
+        row.setTokenHash(hash);
+        row.setFamilyId(familyId);
+        row.setEmail(email);
+        row.setScope(scope);
+        row.setFamilyIssuedAt(familyIssuedAt);
+        row.setExpiresAt(entry.expiresAt());
+        repository.save(row);
+        tokens.put(hash, entry);
+        return token;
+    }
+
+    private Entry lookup(String hash) {
+        Entry entry = tokens.getIfPresent(hash);
+        if (entry != null) {
+            return entry;
+        }
+        return repository.findById(hash)
+                .map(Entry::of)
+                .map(e -> tokens.asMap().merge(hash, e, (existing, loaded) -> existing))
+                .orElse(null);
+    }
+
+    private void revokeFamily(String familyId) {
+        repository.revokeByFamilyId(familyId);
+        tokens.asMap().values().removeIf(e -> e.familyId().equals(familyId));
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(String email, String scope, String refreshToken) {
+    }
+
+    // the fields of a token that do not change, revoked is only read from the database
+    private record Entry(String familyId, String email, Instant familyIssuedAt, Instant expiresAt) {
+
+        static Entry of(RefreshToken t) {
+            return new Entry(t.getFamilyId(), t.getEmail(), t.getFamilyIssuedAt(), t.getExpiresAt());
+        }
+    }
+}
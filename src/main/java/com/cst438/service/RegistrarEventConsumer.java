@@ -0,0 +1,200 @@
+package com.cst438.service;
+
+import com.cst438.RabbitConfiguration;
+import com.cst438.dto.RegistrarMessageDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Receives registrar events from the gradebook_service queue in batches and
+ * applies them with RegistrarServiceProxy.apply.  Each message is decoded once
+ * by RegistrarMessageCodec.
+ *
+ * A batch is split into runs of consecutive events for the same kind of entity
+ * (course, section, user, enrollment).  Runs are applied one after another so an
+ * enrollment is never applied before the section or user it refers to.  Inside a
+ * run the events are partitioned by entity key (course id, section no, user id,
+ * enrollment id) and the partitions are applied in parallel, each partition in
+ * the order the events were received.
+ *
+ * An event that can never succeed, one that cannot be decoded, has an unknown type or
+ * refers to a term or course that does not exist, is sent to the dead letter queue
+ * at once.  Any other failure fails the batch, the
+ * listener container's retry interceptor (RabbitConfiguration) delivers it again
+ * after a backoff.  An event that was applied or dead lettered is marked with a
+ * header and skipped when its batch is retried.  Once max-attempts is reached the
+ * events that are still not applied are sent to the dead letter queue by recover.
+ */
+@Service
+public class RegistrarEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistrarEventConsumer.class);
+
+    private final RegistrarServiceProxy registrar;
+    private final RegistrarMessageCodec codec;
+    private static final String HANDLED = "x-gradebook-handled";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int concurrency;
+    private final ExecutorService workers;
+
+    public RegistrarEventConsumer(
+            RegistrarServiceProxy registrar,
+            RegistrarMessageCodec codec,
+            RabbitTemplate rabbitTemplate,
+            @Value("${gradebook.registrar.consumer.concurrency:4}") int concurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.registrar = registrar;
+        this.codec = codec;
+        this.rabbitTemplate = rabbitTemplate;
+        this.concurrency = concurrency;
+        // the pool size still bounds how many partitions are applied at once
+        ThreadFactory threadFactory = virtualThreads
+                ? new VirtualThreadTaskExecutor("registrar-worker-").getVirtualThreadFactory()
+                : Executors.defaultThreadFactory();
+        this.workers = Executors.newFixedThreadPool(concurrency, threadFactory);
+    }
+
+    @RabbitListener(queues = "gradebook_service", containerFactory = "registrarListenerContainerFactory")
+    public void receive(List<Message> messages) throws InterruptedException {
+        List<Event> run = new ArrayList<>();
+        String runKind = null;
+        for (Message message : messages) {
+            if (isHandled(message)) {
+                continue;
+            }
+            RegistrarMessageDTO decoded;
+            try {
+                decoded = codec.decode(message);
+            } catch (Exception e) {
+                // a message that cannot be decoded will never succeed, do not retry it
+                deadLetter(message, e);
+                continue;
+            }
+            String kind = entityKind(decoded.type());
+            if (runKind != null && !runKind.equals(kind)) {
+                applyRun(run);
+                run = new ArrayList<>();
+            }
+            runKind = kind;
+            run.add(new Event(message, decoded));
+        }
+        if (!run.isEmpty()) {
+            applyRun(run);
+        }
+    }
+
+    // called by the container's retry interceptor when the batch still fails after max-attempts
+    public void recover(List<Message> messages, Throwable cause) {
+        for (Message message : messages) {
+            if (!isHandled(message)) {
+                deadLetter(message, cause);
+            }
+        }
+    }
+
+    // apply a run of events for one kind of entity, partitioned by entity key.
+    // a failed event stops its partition so the retry applies the rest in order,
+    // and the runs after it are not applied.
+    private void applyRun(List<Event> run) throws InterruptedException {
+        AtomicInteger failed = new AtomicInteger();
+        if (run.size() == 1 || concurrency == 1) {
+            applyInOrder(run, failed);
+        } else {
+            List<List<Event>> partitions = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            for (Event event : run) {
+                partitions.get(partition(event.decoded().key(), concurrency)).add(event);
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Event> partition : partitions) {
+                if (!partition.isEmpty()) {
+                    futures.add(workers.submit(() -> applyInOrder(partition, failed)));
+                }
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    // only a failure to reach the dead letter queue gets here.
+                    // rethrow so the batch is not acknowledged and is redelivered.
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        if (failed.get() > 0) {
+            // the container retries the batch after its backoff
+            throw new IllegalStateException(failed.get() + " registrar events failed, the batch is retried");
+        }
+    }
+
+    private void applyInOrder(List<Event> events, AtomicInteger failed) {
+        for (Event event : events) {
+            try {
+                registrar.apply(event.decoded());
+                markHandled(event.message());
+            } catch (IllegalArgumentException e) {
+                // unknown message type, or a section whose term or course does not exist.
+                // a retry would fail the same way
+                deadLetter(event.message(), e);
+            } catch (Exception e) {
+                log.warn("registrar event {} {} failed: {}", event.decoded().type(), event.decoded().key(), e.getMessage());
+                failed.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void deadLetter(Message message, Throwable e) {
+        log.error("registrar event sent to {}: {}", RabbitConfiguration.REGISTRAR_DEAD_LETTER_QUEUE,
+                new String(message.getBody(), StandardCharsets.UTF_8), e);
+        message.getMessageProperties().setHeader("x-exception-message", String.valueOf(e.getMessage()));
+        rabbitTemplate.send(RabbitConfiguration.REGISTRAR_DEAD_LETTER_QUEUE, message);
+        markHandled(message);
+    }
+
+    private static boolean isHandled(Message message) {
+        return Boolean.TRUE.equals(message.getMessageProperties().getHeader(HANDLED));
+    }
+
+    private static void markHandled(Message message) {
+        message.getMessageProperties().setHeader(HANDLED, true);
+    }
+
+    // addSection, updateSection and deleteSection are all "Section"
+    static String entityKind(String type) {
+        return type.replaceFirst("^(add|update|delete)", "");
+    }
+
+    // events with the same key are always in the same partition
+    static int partition(String key, int partitions) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    private record Event(Message message, RegistrarMessageDTO decoded) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
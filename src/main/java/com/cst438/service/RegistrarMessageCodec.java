@@ -0,0 +1,199 @@
+package com.cst438.service;
+
+import com.cst438.dto.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Encodes and decodes messages exchanged with the registrar service.
+ *
+ * Three encodings are understood, selected by the AMQP content type header:
+ *   text/plain        legacy "<type> <json payload>" string
+ *   application/json  envelope {"type":..., "key":..., "version":..., "payload":...}
+ *   application/cbor  the same envelope in CBOR binary encoding
+ *
+ * ObjectReaders and ObjectWriters are created once per payload type and reused,
+ * they are immutable and thread safe.
+ */
+@Component
+public class RegistrarMessageCodec {
+
+    public static final int VERSION = 1;
+    public static final String TEXT = MessageProperties.CONTENT_TYPE_TEXT_PLAIN;
+    public static final String JSON = MessageProperties.CONTENT_TYPE_JSON;
+    public static final String CBOR = "application/cbor";
+
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            "addCourse", CourseDTO.class,
+            "updateCourse", CourseDTO.class,
+            "addSection", SectionDTO.class,
+            "updateSection", SectionDTO.class,
+            "addUser", UserPasswordDTO.class,
+            "updateUser", UserPasswordDTO.class,
+            "addEnrollment", EnrollmentDTO.class);
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private final ObjectReader jsonTreeReader = jsonMapper.readerFor(JsonNode.class);
+    private final ObjectReader cborTreeReader = cborMapper.readerFor(JsonNode.class);
+    private final Map<String, ObjectReader> payloadReaders = new HashMap<>();
+    private final Map<Class<?>, ObjectWriter> payloadWriters = new ConcurrentHashMap<>();
+
+    public RegistrarMessageCodec() {
+        PAYLOAD_TYPES.forEach((type, cls) -> payloadReaders.put(type, jsonMapper.readerFor(cls)));
+    }
+
+    public RegistrarMessageDTO decode(Message message) {
+        return decode(message.getBody(), message.getMessageProperties().getContentType());
+    }
+
+    public RegistrarMessageDTO decode(byte[] body, String contentType) {
+        try {
+            if (CBOR.equals(contentType)) {
+                return fromEnvelope(cborTreeReader.readValue(body));
+            }
+            if (JSON.equals(contentType)) {
+                return fromEnvelope(jsonTreeReader.readValue(body));
+            }
+            return fromText(new String(body, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // legacy format: "<type> <payload>"
+    private RegistrarMessageDTO fromText(String message) throws IOException {
+        int space = message.indexOf(' ');
+        if (space < 0) {
+            throw new IllegalArgumentException("malformed message " + message);
+        }
+        String type = message.substring(0, space);
+        String body = message.substring(space + 1);
+        ObjectReader reader = payloadReaders.get(type);
+        if (reader == null) {
+            return withKey(type, null, VERSION, body.trim());
+        }
+        return withKey(type, null, VERSION, reader.readValue(body));
+    }
+
+    private RegistrarMessageDTO fromEnvelope(JsonNode envelope) throws IOException {
+        String type = envelope.path("type").asText();
+        int version = envelope.path("version").asInt(VERSION);
+        if (version > VERSION) {
+            throw new IllegalArgumentException("unsupported message version " + version + " for " + type);
+        }
+        String key = envelope.hasNonNull("key") ? envelope.get("key").asText() : null;
+        JsonNode payload = envelope.path("payload");
+        ObjectReader reader = payloadReaders.get(type);
+        if (reader == null) {
+            return withKey(type, key, version, payload.asText());
+        }
+        return withKey(type, key, version, reader.readValue(payload));
+    }
+
+    private static RegistrarMessageDTO withKey(String type, String key, int version, Object payload) {
+        if (key == null) {
+            if (payload instanceof CourseDTO c) {
+                key = c.courseId();
+            } else if (payload instanceof SectionDTO s) {
+                key = Integer.toString(s.secNo());
+            } else if (payload instanceof UserPasswordDTO u) {
+                key = Integer.toString(u.id());
+            } else if (payload instanceof EnrollmentDTO e) {
+                key = Integer.toString(e.enrollmentId());
+            } else {
+                key = String.valueOf(payload);
+            }
+        }
+        return new RegistrarMessageDTO(type, key, version, payload);
+    }
+
+    // JSON text of a message payload, written with a cached writer for its type
+    public String writePayload(Object payload) {
+        try {
+            return payloadWriters.computeIfAbsent(payload.getClass(), jsonMapper::writerFor)
+                    .writeValueAsString(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // build the AMQP message for an outgoing command in the requested encoding.
+    // the payload is a DTO, a list of DTOs or a JsonNode, it is serialized once
+    // straight into the message body.
+    public Message encode(String type, Object payload, String contentType) {
+        ObjectWriter writer = payloadWriters.computeIfAbsent(payload.getClass(), jsonMapper::writerFor);
+        return encode(type, contentType, () -> writer.writeValueAsString(payload),
+                generator -> writer.writeValue(generator, payload));
+    }
+
+    // same as encode for a payload already written as JSON text, as the outbox stores it.
+    // the text is copied into a JSON envelope as it is and streamed into a CBOR one,
+    // it is not read into a tree.
+    public Message encodeJson(String type, String payloadJson, String contentType) {
+        return encode(type, contentType, () -> payloadJson, generator -> {
+            if (CBOR.equals(contentType)) {
+                try (JsonParser parser = jsonMapper.createParser(payloadJson)) {
+                    parser.nextToken();
+                    generator.copyCurrentStructure(parser);
+                }
+            } else {
+                generator.writeRawValue(payloadJson);
+            }
+        });
+    }
+
+    private interface PayloadText {
+        String get() throws IOException;
+    }
+
+    private interface PayloadWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private Message encode(String type, String contentType, PayloadText text, PayloadWriter payload) {
+        try {
+            byte[] body;
+            if (CBOR.equals(contentType) || JSON.equals(contentType)) {
+                ObjectMapper mapper = CBOR.equals(contentType) ? cborMapper : jsonMapper;
+                ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+                try (JsonGenerator generator = mapper.createGenerator(out)) {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", type);
+                    generator.writeNumberField("version", VERSION);
+                    generator.writeFieldName("payload");
+                    payload.write(generator);
+                    generator.writeEndObject();
+                }
+                body = out.toByteArray();
+            } else {
+                contentType = TEXT;
+                body = (type + " " + text.get()).getBytes(StandardCharsets.UTF_8);
+            }
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(contentType);
+            if (!CBOR.equals(contentType)) {
+                properties.setContentEncoding(StandardCharsets.UTF_8.name());
+            }
+            return new Message(body, properties);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
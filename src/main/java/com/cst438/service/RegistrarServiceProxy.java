@@ -2,13 +2,14 @@ package com.cst438.service;
 
 import com.cst438.domain.*;
 import com.cst438.dto.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 @Service
 public class RegistrarServiceProxy {
@@ -29,7 +30,20 @@ public class RegistrarServiceProxy {
     TermRepository termRepository;
 
 
-    Queue registrarServiceQueue = new Queue("registrar_service", true);
+    @Autowired
+    RegistrarMessageCodec codec;
+
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    SectionAccessService sectionAccessService;
+
+    @Autowired
+    AssignmentStatisticsService statisticsService;
+
+    @Autowired
+    ResourceVersionService versionService;
 
     @Bean
     public Queue createQueue() {
@@ -37,104 +51,112 @@ public class RegistrarServiceProxy {
     }
 
     @Autowired
-    RabbitTemplate rabbitTemplate;
+    OutboxMessageRepository outboxMessageRepository;
 
-    @RabbitListener(queues = "gradebook_service")
+    // apply one legacy "<type> <json>" registrar message to the gradebook database.
     public void receiveFromRegistrar(String message) {
+        apply(codec.decode(message.getBytes(StandardCharsets.UTF_8), RegistrarMessageCodec.TEXT));
+    }
 
-        System.out.println("received " + message);
-        try {
-            String[] parts = message.split(" ", 2);
-            switch (parts[0]) {
-                case "addCourse":
-                case "updateCourse":
-                    CourseDTO dto = fromJsonString(parts[1], CourseDTO.class);
-                    Course c = new Course();
-                    c.setCourseId(dto.courseId());
-                    c.setTitle(dto.title());
-                    c.setCredits(dto.credits());
-                    courseRepository.save(c);
-                    break;
-                case "deleteCourse":
-                    courseRepository.deleteById(parts[1]);
-                    break;
-
-                case "addSection":
-                case "updateSection":
-                    SectionDTO sto = fromJsonString(parts[1], SectionDTO.class);
-                    Section s = new Section();
-                    s.setInstructorEmail(sto.instructorEmail());
-                    s.setSectionId(sto.secId());
-                    s.setBuilding(sto.building());
-                    s.setRoom(sto.room());
-                    s.setTimes(sto.times());
-                    s.setSectionNo(sto.secNo());
-                    Term t = termRepository.findByYearAndSemester(sto.year(), sto.semester());
-                    s.setTerm(t);
-                    Course co = courseRepository.findById(sto.courseId()).orElse(null);
-                    s.setCourse(co);
-                    sectionRepository.save(s);
-                    break;
-
-                case "deleteSection":
-                    sectionRepository.deleteById(Integer.parseInt(parts[1]));
-                    break;
-
-                case "addUser":
-                case "updateUser":
-                    UserPasswordDTO uto = fromJsonString(parts[1], UserPasswordDTO.class);
-                    User u = new User();
-                    u.setId(uto.id());
-                    u.setName(uto.name());
-                    u.setEmail(uto.email());
-                    u.setPassword(uto.password());
-                    u.setType(uto.type());
-                    userRepository.save(u);
-                    break;
-                case "deleteUser":
-                    userRepository.deleteById(Integer.parseInt(parts[1]));
-                    break;
-
-                case "addEnrollment":
-                    EnrollmentDTO eto = fromJsonString(parts[1], EnrollmentDTO.class);
-                    Enrollment e = new Enrollment();
-                    e.setEnrollmentId(eto.enrollmentId());
-                    User student = userRepository.findById(eto.studentId()).orElse(null);
-                    e.setStudent(student);
-                    Section es = sectionRepository.findById(eto.sectionNo()).orElse(null);
-                    e.setSection(es);
-                    e.setGrade(eto.grade());
-                    enrollmentRepository.save(e);
-                    break;
-                case "deleteEnrollment":
-                    enrollmentRepository.deleteById(Integer.parseInt(parts[1]));
-                    break;
-                default:
-                    System.out.println("Error. unknown message " + parts[0]);
-            }
-        } catch (Exception e) {
-            System.out.println("Exception "+e.getMessage());
+    // apply one decoded registrar event to the gradebook database.
+    // called by RegistrarEventConsumer; a failure is thrown to the caller
+    // so the message can be retried or sent to the dead letter queue.
+    public void apply(RegistrarMessageDTO message) {
+
+        switch (message.type()) {
+            case "addCourse":
+            case "updateCourse":
+                CourseDTO dto = (CourseDTO) message.payload();
+                Course c = new Course();
+                c.setCourseId(dto.courseId());
+                c.setTitle(dto.title());
+                c.setCredits(dto.credits());
+                courseRepository.save(c);
+                referenceDataCache.invalidateCourse(c.getCourseId());
+                break;
+            case "deleteCourse":
+                courseRepository.deleteById(message.key());
+                referenceDataCache.invalidateCourse(message.key());
+                break;
+
+            case "addSection":
+            case "updateSection":
+                SectionDTO sto = (SectionDTO) message.payload();
+                Section s = new Section();
+                s.setInstructorEmail(sto.instructorEmail());
+                s.setSectionId(sto.secId());
+                s.setBuilding(sto.building());
+                s.setRoom(sto.room());
+                s.setTimes(sto.times());
+                s.setSectionNo(sto.secNo());
+                // a section needs its term and course, the event goes to the dead letter queue
+                Term t = termRepository.findByYearAndSemester(sto.year(), sto.semester());
+                if (t == null) {
+                    throw new IllegalArgumentException("unknown term " + sto.year() + " " + sto.semester());
+                }
+                s.setTerm(t);
+                Course co = courseRepository.findById(sto.courseId()).orElseThrow(
+                        () -> new IllegalArgumentException("unknown course " + sto.courseId()));
+                s.setCourse(co);
+                sectionRepository.save(s);
+                referenceDataCache.invalidateSection(s.getSectionNo());
+                sectionAccessService.sectionChanged(s.getSectionNo(), s.getInstructorEmail(), t.getEndDate());
+                break;
+
+            case "deleteSection":
+                sectionRepository.deleteById(Integer.parseInt(message.key()));
+                referenceDataCache.invalidateSection(Integer.parseInt(message.key()));
+                sectionAccessService.sectionDeleted(Integer.parseInt(message.key()));
+                statisticsService.invalidateSection(Integer.parseInt(message.key()));
+                break;
+
+            case "addUser":
+            case "updateUser":
+                UserPasswordDTO uto = (UserPasswordDTO) message.payload();
+                User u = new User();
+                u.setId(uto.id());
+                u.setName(uto.name());
+                u.setEmail(uto.email());
+                u.setPassword(uto.password());
+                u.setType(uto.type());
+                userRepository.save(u);
+                break;
+            case "deleteUser":
+                userRepository.deleteById(Integer.parseInt(message.key()));
+                // enrollments of the user are deleted with it
+                statisticsService.invalidateAll();
+                break;
+
+            case "addEnrollment":
+                EnrollmentDTO eto = (EnrollmentDTO) message.payload();
+                Enrollment e = new Enrollment();
+                e.setEnrollmentId(eto.enrollmentId());
+                User student = userRepository.findById(eto.studentId()).orElse(null);
+                e.setStudent(student);
+                Section es = sectionRepository.findById(eto.sectionNo()).orElse(null);
+                e.setSection(es);
+                e.setGrade(eto.grade());
+                enrollmentRepository.save(e);
+                statisticsService.invalidateSection(eto.sectionNo());
+                break;
+            case "deleteEnrollment":
+                enrollmentRepository.deleteById(Integer.parseInt(message.key()));
+                statisticsService.invalidateAll();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown message " + message.type());
         }
+        versionService.registrarChanged();
     }
 
+    // write the message to the outbox table in the caller's transaction.
+    // OutboxPublisher sends it to the registrar after the transaction commits.
+    @Transactional
     public void sendMessage(String cmd, Object obj) {
-        String msg = cmd +" "+ asJsonString(obj);
-        System.out.println("Sending "+msg);
-        rabbitTemplate.convertAndSend(registrarServiceQueue.getName(), msg);
-    }
-
-    private static String asJsonString(final Object obj) {
-        try {
-            return new ObjectMapper().writeValueAsString(obj);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-    private static <T> T  fromJsonString(String str, Class<T> valueType ) {
-        try {
-            return new ObjectMapper().readValue(str, valueType);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        OutboxMessage m = new OutboxMessage();
+        m.setCmd(cmd);
+        m.setPayload(codec.writePayload(obj));
+        m.setCreatedAt(Instant.now());
+        outboxMessageRepository.save(m);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.cst438.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Change counters that the read endpoints turn into strong ETags.
+ *
+ * Every change takes the next value of one sequence and stores it as the version of
+ * what it changed, when its transaction commits:
+ *   section    assignment, grade and enrollment changes of one section
+ *   student    grade changes of one student
+ *   assignments  assignment changes and grade imports, which affect many students
+ *   registrar  any registrar event (sections, users, enrollments)
+ * An ETag is built from the versions its response depends on, so a request with a
+ * matching If-None-Match is answered 304 before any repository is called.  The
+ * versions are not persisted, the startup time is part of every ETag so a restart
+ * invalidates all of them.
+ *
+ * The ETag value is read before the response is built from the database.  A change
+ * committed while the response is built moves the version on and the next request
+ * is a miss, a stale response is never tagged with a newer version.
+ *
+ * The versions are kept in this process only, a change made through another instance
+ * does not move them on.  ETags are correct for a single instance only: when more than
+ * one instance serves requests set gradebook.etag.enabled=false, responses then carry
+ * no ETag and every request is answered from the database.
+ */
+@Service
+public class ResourceVersionService {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Integer, Long> sections = new ConcurrentHashMap<>();
+    private final Map<String, Long> students = new ConcurrentHashMap<>();
+    private volatile long assignments;
+    private volatile long registrar;
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> hits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> misses = new ConcurrentHashMap<>();
+    private final AtomicLong totalHits = new AtomicLong();
+    private final AtomicLong totalRequests = new AtomicLong();
+
+    public ResourceVersionService(
+            MeterRegistry meterRegistry,
+            @Value("${gradebook.etag.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        Gauge.builder("gradebook.etag.hit.ratio", this, s -> s.hitRatio())
+                .description("share of conditional GETs answered 304 Not Modified")
+                .register(meterRegistry);
+    }
+
+    public void sectionChanged(int sectionNo) {
+        AfterCommit.run(() -> sections.put(sectionNo, sequence.incrementAndGet()));
+    }
+
+    public void studentChanged(String email) {
+        AfterCommit.run(() -> students.put(email, sequence.incrementAndGet()));
+    }
+
+    // an assignment was added, changed or deleted, or scores were imported
+    public void assignmentsChanged(int sectionNo) {
+        AfterCommit.run(() -> {
+            long version = sequence.incrementAndGet();
+            sections.put(sectionNo, version);
+            assignments = version;
+        });
+    }
+
+    public void registrarChanged() {
+        AfterCommit.run(() -> registrar = sequence.incrementAndGet());
+    }
+
+    // instructor's section list, changed only by the registrar
+    public String instructorSectionsETag(String email) {
+        return etag(user(email), registrar);
+    }
+
+    // assignments and enrollments of a section
+    public String sectionETag(int sectionNo) {
+        return etag(null, registrar, sections.getOrDefault(sectionNo, 0L));
+    }
+
+    // student's assignments and scores in all of their sections
+    public String studentETag(String email) {
+        return etag(user(email), registrar, assignments, students.getOrDefault(email, 0L));
+    }
+
+    // another representation of the same resource, e.g. the compact view, has its own ETag
+    public static String variant(String etag, String name) {
+        return etag.substring(0, etag.length() - 1) + "-" + name + '"';
+    }
+
+    // true when the request's If-None-Match matches, the response is then a 304.
+    // the ETag header is set on the response either way, unless ETags are disabled.
+    public boolean checkNotModified(WebRequest request, String endpoint, String etag) {
+        if (!enabled) {
+            return false;
+        }
+        boolean notModified = request.checkNotModified(etag);
+        totalRequests.incrementAndGet();
+        if (notModified) {
+            totalHits.incrementAndGet();
+            hits.computeIfAbsent(endpoint, e -> counter(e, "hit")).increment();
+        } else {
+            misses.computeIfAbsent(endpoint, e -> counter(e, "miss")).increment();
+        }
+        return notModified;
+    }
+
+    private Counter counter(String endpoint, String result) {
+        return Counter.builder("gradebook.etag.requests")
+                .description("conditional GETs by endpoint, hit is a 304 Not Modified")
+                .tag("endpoint", endpoint)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private double hitRatio() {
+        long requests = totalRequests.get();
+        return requests == 0 ? 0 : (double) totalHits.get() / requests;
+    }
+
+    // the ETag of a per-user response differs between users of the same browser.
+    // a SHA-256 hash of the email, so two users never share an ETag and the email is not sent.
+    private static String user(String email) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(email.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String etag(String user, long... versions) {
+        StringBuilder etag = new StringBuilder("\"").append(epoch);
+        if (user != null) {
+            etag.append('-').append(user);
+        }
+        for (long v : versions) {
+            etag.append('-').append(Long.toString(v, 36));
+        }
+        return etag.append('"').toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.cst438.service;
+
+import com.cst438.domain.SectionRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Answers "is this user the instructor of this section" without loading a Section.
+ *
+ * An in-memory index of section number to instructor email is built at startup for
+ * the sections of terms that have not ended and is kept current by the registrar
+ * section messages.  Sections of past terms are not indexed and are checked with
+ * the ReferenceDataCache snapshot.
+ *
+ * Usable from method security, e.g.
+ *   @PreAuthorize("@sectionAccessService.isInstructor(authentication.name, #secNo)")
+ */
+@Service
+public class SectionAccessService {
+
+    private final SectionRepository sectionRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    private final Map<Integer, String> instructorBySection = new ConcurrentHashMap<>();
+
+    public SectionAccessService(SectionRepository sectionRepository, ReferenceDataCache referenceDataCache) {
+        this.sectionRepository = sectionRepository;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        Date today = Date.valueOf(LocalDate.now());
+        for (Object[] row : sectionRepository.findSectionOwnersForTermsEndingOnOrAfter(today)) {
+            index((Integer) row[0], (String) row[1]);
+        }
+    }
+
+    public boolean isInstructor(String email, int sectionNo) {
+        if (email == null) {
+            return false;
+        }
+        String instructor = instructorBySection.get(sectionNo);
+        if (instructor != null) {
+            return instructor.equals(email);
+        }
+        SectionInfo section = referenceDataCache.getSection(sectionNo);
+        return section != null && section.isInstructor(email);
+    }
+
+    // called when the registrar adds or updates a section
+    public void sectionChanged(int sectionNo, String instructorEmail, Date termEndDate) {
+        remove(sectionNo);
+        if (termEndDate != null && !termEndDate.toLocalDate().isBefore(LocalDate.now())) {
+            index(sectionNo, instructorEmail);
+        }
+    }
+
+    // called when the registrar deletes a section
+    public void sectionDeleted(int sectionNo) {
+        remove(sectionNo);
+    }
+
+    private void index(int sectionNo, String instructorEmail) {
+        if (instructorEmail == null) {
+            return;
+        }
+        instructorBySection.put(sectionNo, instructorEmail);
+    }
+
+    private void remove(int sectionNo) {
+        instructorBySection.remove(sectionNo);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cst438.service;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.Section;
+import com.cst438.domain.Term;
+
+import java.sql.Date;
+
+/*
+ * Immutable snapshot of a Section with its Course and Term.
+ * Held by ReferenceDataCache so controllers do not load the entities on every request.
+ * course_id and term_id are not null in the database, so a loaded Section always has
+ * both.  A Section built in memory without them gives null course and term fields and
+ * 0 for the numbers.
+ */
+public record SectionInfo(
+        int sectionNo,
+        int sectionId,
+        String courseId,
+        String courseTitle,
+        int credits,
+        String building,
+        String room,
+        String times,
+        String instructorEmail,
+        int termId,
+        int year,
+        String semester,
+        Date startDate,
+        Date endDate
+) {
+    public static SectionInfo of(Section s) {
+        Course c = s.getCourse();
+        Term t = s.getTerm();
+        return new SectionInfo(
+                s.getSectionNo(),
+                s.getSectionId(),
+                c == null ? null : c.getCourseId(),
+                c == null ? null : c.getTitle(),
+                c == null ? 0 : c.getCredits(),
+                s.getBuilding(),
+                s.getRoom(),
+                s.getTimes(),
+                s.getInstructorEmail(),
+                t == null ? 0 : t.getTermId(),
+                t == null ? 0 : t.getYear(),
+                t == null ? null : t.getSemester(),
+                t == null ? null : t.getStartDate(),
+                t == null ? null : t.getEndDate());
+    }
+
+    public boolean isInstructor(String email) {
+        return instructorEmail != null && instructorEmail.equals(email);
+    }
+}
@@ -7,8 +7,8 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,24 +21,25 @@ public class TokenService {
 	}
 	
 	public String generateToken(Authentication authentication) {
-		Instant now = Instant.now();
-
-		System.out.println("name "+authentication.getName());
-		for (GrantedAuthority a : authentication.getAuthorities()) {
-			System.out.println("Authority "+a.getAuthority());
-		}
-
+		return generateToken(authentication.getName(), scope(authentication), Duration.ofHours(1));
+	}
 
-		String scope = authentication.getAuthorities().stream()
-				.map(GrantedAuthority::getAuthority)
-				.collect(Collectors.joining(""));
+	// token for a subject whose scope is already known, used when a refresh token is exchanged
+	public String generateToken(String subject, String scope, Duration ttl) {
+		Instant now = Instant.now();
 		JwtClaimsSet claims = JwtClaimsSet.builder()
 		 .issuer("self")
 		 .issuedAt(now)
-		 .expiresAt(now.plus(1, ChronoUnit.HOURS))
-		 .subject(authentication.getName())
+		 .expiresAt(now.plus(ttl))
+		 .subject(subject)
 		 .claim("scope", scope)
 		 .build();
 		return this.encoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
 	}
+
+	public static String scope(Authentication authentication) {
+		return authentication.getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority)
+				.collect(Collectors.joining(""));
+	}
 }
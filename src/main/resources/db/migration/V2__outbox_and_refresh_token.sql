@@ -0,0 +1,17 @@
+-- registrar outbox and refresh token tables
+
+create table outbox_message (
+    id bigint auto_increment primary key,
+    cmd varchar(50) not null,
+    payload longtext not null,
+    created_at timestamp(6) not null
+);
+
+create table refresh_token (
+    token_hash varchar(64) primary key,
+    family_id varchar(64) not null,
+    email varchar(50) not null,
+    scope varchar(50) not null,
+    expires_at timestamp(6) not null,
+    revoked boolean not null default false
+);
@@ -0,0 +1,22 @@
+-- indexes matched to the repository queries, keep in sync with schema.sql
+--   term               TermRepository.findByYearAndSemester, SectionRepository.findSectionOwnersForTermsEndingOnOrAfter
+--   section            SectionRepository.findByInstructorEmailAndYearAndSemester
+--   enrollment         EnrollmentRepository.findEnrollmentsBySectionNoOrderByStudentName, student assignment queries
+--   assignment         AssignmentRepository.findBySectionNo
+--   grade              GradeRepository queries and insertMissingGrades
+
+-- rows created twice by concurrent requests must be removed before the unique constraint is added
+delete g1 from grade g1 join grade g2
+    on g1.assignment_id = g2.assignment_id and g1.enrollment_id = g2.enrollment_id and g1.grade_id > g2.grade_id;
+
+alter table grade add constraint grade_assignment_enrollment_uk unique (assignment_id, enrollment_id);
+
+create index term_year_semester_ix on term (tyear, semester);
+create index term_end_date_ix on term (end_date);
+create index section_instructor_term_ix on section (instructor_email, term_id);
+create index enrollment_section_user_ix on enrollment (section_no, user_id);
+create index enrollment_user_section_ix on enrollment (user_id, section_no);
+create index assignment_section_due_ix on assignment (section_no, due_date);
+create index grade_enrollment_ix on grade (enrollment_id);
+create index refresh_token_family_ix on refresh_token (family_id);
+create index refresh_token_expires_ix on refresh_token (expires_at);
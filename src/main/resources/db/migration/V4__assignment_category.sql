@@ -0,0 +1,14 @@
+-- assignment categories and their weight in the final grade, keep in sync with schema.sql
+
+create table assignment_category (
+    category_id int auto_increment primary key,
+    section_no int not null,
+    name varchar(50) not null,
+    weight int not null check (weight between 0 and 100),
+    foreign key (section_no) references section(section_no) on delete cascade,
+    constraint assignment_category_section_name_uk unique (section_no, name)
+);
+
+alter table assignment add column category_id int;
+alter table assignment add constraint assignment_category_fk
+    foreign key (category_id) references assignment_category(category_id) on delete set null;
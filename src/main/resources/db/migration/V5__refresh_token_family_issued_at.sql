@@ -0,0 +1,6 @@
+-- login time of a refresh token family, keep in sync with schema.sql
+-- tokens issued before this column existed start their family lifetime now
+
+alter table refresh_token add column family_issued_at timestamp(6) null;
+update refresh_token set family_issued_at = current_timestamp(6);
+alter table refresh_token modify family_issued_at timestamp(6) not null;
@@ -45,6 +45,17 @@ create table enrollment (
     foreign key(user_id) references user_table(id) on delete cascade
 );
 
+create sequence assignment_category_seq START WITH 1;
+
+create table assignment_category (
+    category_id int default next value for assignment_category_seq primary key,
+    section_no int not null,
+    name varchar(50) not null,
+    weight int not null check (weight between 0 and 100),
+    foreign key (section_no) references section(section_no) on delete cascade,
+    constraint assignment_category_section_name_uk unique (section_no, name)
+);
+
 create sequence assignment_seq START WITH 6000;
 
 create table assignment (
@@ -52,7 +63,9 @@ create table assignment (
     section_no int not null,
     title varchar(250) not null,
     due_date Date,
-    foreign key (section_no) references section(section_no)
+    category_id int,
+    foreign key (section_no) references section(section_no),
+    foreign key (category_id) references assignment_category(category_id) on delete set null
 );
 
 create sequence grade_seq START WITH 12000;
@@ -63,5 +76,36 @@ create table grade (
    assignment_id int not null,
    score int check (score between 0 and 100),
    foreign key(enrollment_id) references enrollment(enrollment_id) on delete cascade,
-   foreign key(assignment_id) references assignment(assignment_id) on delete cascade
+   foreign key(assignment_id) references assignment(assignment_id) on delete cascade,
+   constraint grade_assignment_enrollment_uk unique (assignment_id, enrollment_id)
 );
+
+create sequence outbox_seq START WITH 1;
+
+create table outbox_message (
+   id bigint default next value for outbox_seq primary key,
+   cmd varchar(50) not null,
+   payload clob not null,
+   created_at timestamp with time zone not null
+);
+
+create table refresh_token (
+   token_hash varchar(64) primary key,
+   family_id varchar(64) not null,
+   email varchar(50) not null,
+   scope varchar(50) not null,
+   family_issued_at timestamp with time zone not null,
+   expires_at timestamp with time zone not null,
+   revoked boolean not null default false
+);
+
+-- indexes for the repository queries, keep in sync with db/migration/V3__repository_query_indexes.sql
+create index term_year_semester_ix on term (tyear, semester);
+create index term_end_date_ix on term (end_date);
+create index section_instructor_term_ix on section (instructor_email, term_id);
+create index enrollment_section_user_ix on enrollment (section_no, user_id);
+create index enrollment_user_section_ix on enrollment (user_id, section_no);
+create index assignment_section_due_ix on assignment (section_no, due_date);
+create index grade_enrollment_ix on grade (enrollment_id);
+create index refresh_token_family_ix on refresh_token (family_id);
+create index refresh_token_expires_ix on refresh_token (expires_at);
@@ -0,0 +1,26 @@
+package com.cst438.benchmark;
+
+import com.cst438.GradebookMain;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * Starts the gradebook application for benchmarks that need the Spring context.
+ * The database is the in-memory H2 database created from schema.sql and data.sql.
+ * No RabbitMQ broker is needed, the listener containers are not started.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(GradebookMain.class)
+                .properties(
+                        "server.port=0",
+                        "spring.rabbitmq.listener.simple.auto-startup=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run(args);
+    }
+}
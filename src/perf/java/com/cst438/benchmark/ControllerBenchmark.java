@@ -0,0 +1,162 @@
+package com.cst438.benchmark;
+
+import com.cst438.RsaKeyProperties;
+import com.cst438.controller.AssignmentController;
+import com.cst438.controller.EnrollmentController;
+import com.cst438.controller.GradeController;
+import com.cst438.dto.*;
+import com.cst438.service.RegistrarMessageCodec;
+import com.cst438.service.TokenService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Controller hot paths measured against the running application and its H2 database:
+ * repository queries, DTO mapping, the @PreAuthorize checks, JWT encode/decode in
+ * TokenService and registrar message decoding.  The controllers are called directly,
+ * HTTP is not included (see LoadTest).  The list endpoints that stream their JSON
+ * write it to a null stream, the others return DTOs without serialization.
+ *
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args=ControllerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private static final byte[] SECTION_MESSAGE = ("updateSection {\"secNo\":1,\"year\":2025,\"semester\":\"Fall\"," +
+            "\"courseId\":\"cst489\",\"title\":\"Software Engineering\",\"secId\":1,\"building\":\"90\"," +
+            "\"room\":\"B104\",\"times\":\"W F 10-11\",\"instructorName\":\"ted\"," +
+            "\"instructorEmail\":\"ted@csumb.edu\"}").getBytes(StandardCharsets.UTF_8);
+
+    private ConfigurableApplicationContext context;
+    private AssignmentController assignmentController;
+    private EnrollmentController enrollmentController;
+    private GradeController gradeController;
+    private TokenService tokenService;
+    private RegistrarMessageCodec codec;
+    private JwtDecoder cachingDecoder;
+    private JwtDecoder nimbusDecoder;
+
+    private Authentication instructor;
+    private Authentication student;
+    private String instructorToken;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        assignmentController = context.getBean(AssignmentController.class);
+        enrollmentController = context.getBean(EnrollmentController.class);
+        gradeController = context.getBean(GradeController.class);
+        tokenService = context.getBean(TokenService.class);
+        codec = context.getBean(RegistrarMessageCodec.class);
+        cachingDecoder = context.getBean(JwtDecoder.class);
+        nimbusDecoder = NimbusJwtDecoder.withPublicKey(context.getBean(RsaKeyProperties.class).publicKey()).build();
+
+        // the same Authentication the resource server builds from a bearer token
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        instructorToken = tokenService.generateToken("ted@csumb.edu", "ROLE_INSTRUCTOR", Duration.ofHours(1));
+        instructor = converter.convert(cachingDecoder.decode(instructorToken));
+        student = converter.convert(cachingDecoder.decode(
+                tokenService.generateToken("sam@csumb.edu", "ROLE_STUDENT", Duration.ofHours(1))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void instructorSections() throws IOException {
+        write(assignmentController.getSectionsForInstructor(2025, "Fall", null, null, null, as(instructor), request()));
+    }
+
+    @Benchmark
+    public List<AssignmentDTO> sectionAssignments() {
+        return assignmentController.getAssignments(1, null, as(instructor), request());
+    }
+
+    @Benchmark
+    public void sectionEnrollments() throws IOException {
+        write(enrollmentController.getEnrollments(2, null, null, null, null, as(instructor), request()));
+    }
+
+    @Benchmark
+    public void assignmentGrades() throws IOException {
+        write(gradeController.getAssignmentGrades(6000, null, null, null, null, as(instructor)));
+    }
+
+    @Benchmark
+    public void sectionEnrollmentsCompact() throws IOException {
+        write(enrollmentController.getEnrollments(2, null, null, "compact", null, as(instructor), request()));
+    }
+
+    @Benchmark
+    public GradebookDTO sectionGradebook() {
+        as(instructor);
+        return gradeController.getGradebook(1);
+    }
+
+    @Benchmark
+    public List<AssignmentStudentDTO> studentAssignments() {
+        return assignmentController.getStudentAssignments(2025, "Fall", null, as(student), request());
+    }
+
+    @Benchmark
+    public String tokenEncode() {
+        return tokenService.generateToken("ted@csumb.edu", "ROLE_INSTRUCTOR", Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public Jwt tokenDecode() {
+        return nimbusDecoder.decode(instructorToken);
+    }
+
+    @Benchmark
+    public Jwt tokenDecodeCached() {
+        return cachingDecoder.decode(instructorToken);
+    }
+
+    @Benchmark
+    public RegistrarMessageDTO registrarDecode() {
+        return codec.decode(SECTION_MESSAGE, RegistrarMessageCodec.TEXT);
+    }
+
+    // the list endpoints stream their JSON, the body is written and discarded
+    private static void write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        response.getBody().writeTo(OutputStream.nullOutputStream());
+    }
+
+    // a request without If-None-Match, the response is always built
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    // @PreAuthorize reads the SecurityContext of the calling thread
+    private static Authentication as(Authentication authentication) {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return authentication;
+    }
+}
@@ -0,0 +1,146 @@
+package com.cst438.benchmark;
+
+import com.cst438.controller.KeysetPageWriter;
+import com.cst438.dto.AssignmentStudentDTO;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.EnrollmentListDTO;
+import com.cst438.dto.GradeDTO;
+import com.cst438.dto.GradeListDTO;
+import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+ * Writing the list responses of the instructor and student endpoints.
+ *
+ * The repositories build the DTOs in the query (select new ...), so the rows are the
+ * projection DTOs as a query returns them.  Section, enrollment and grade lists go
+ * through KeysetPageWriter the way the controllers call it, in the full and the compact
+ * view, with the page query answered from memory; the student assignment list is a plain
+ * List written by the message converter's ObjectMapper.  ControllerBenchmark includes
+ * the H2 queries.  size is the number of rows in a section roster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"30", "300"})
+    public int size;
+
+    private KeysetPageWriter pageWriter;
+    private ObjectWriter writer;
+
+    private List<SectionDTO> sections;
+    private List<EnrollmentDTO> enrollments;
+    private List<GradeDTO> grades;
+    private List<AssignmentStudentDTO> assignmentStudents;
+    private EnrollmentListDTO.Section sectionHeader;
+    private GradeListDTO.Assignment assignmentHeader;
+
+    @Setup
+    public void setup() {
+        sections = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            sections.add(new SectionDTO(i, 2025, "Fall", "cst489", "Software Engineering", i,
+                    "90", "B104", "W F 10-11", "ted", "ted@csumb.edu"));
+        }
+
+        // rows in (student name, id) order like the page queries return them
+        enrollments = new ArrayList<>();
+        grades = new ArrayList<>();
+        assignmentStudents = new ArrayList<>();
+        Date dueDate = Date.valueOf("2025-12-01");
+        for (int i = 0; i < size; i++) {
+            String name = String.format("student%03d", i);
+            Integer score = i % 4 == 0 ? null : 60 + i % 40;
+            enrollments.add(new EnrollmentDTO(100 + i, i % 3 == 0 ? null : "B", 1000 + i, name,
+                    name + "@csumb.edu", "cst489", "Software Engineering", 1, 1, "90", "B104", "W F 10-11",
+                    4, 2025, "Fall"));
+            grades.add(new GradeDTO(i + 1, name, name + "@csumb.edu", "Final Project", "cst489", 1, score));
+            assignmentStudents.add(new AssignmentStudentDTO(6000 + i, "Assignment " + i, dueDate, "cst489", 1, score));
+        }
+        sectionHeader = new EnrollmentListDTO.Section(1, "cst489", "Software Engineering", 1,
+                "90", "B104", "W F 10-11", 4, 2025, "Fall");
+        assignmentHeader = new GradeListDTO.Assignment(6000, "Final Project", "cst489", 1, 1);
+
+        // configured the same way as the ObjectMapper Spring Boot gives the message converters
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writer();
+        pageWriter = new KeysetPageWriter(mapper, new MappingJackson2CborHttpMessageConverter(),
+                new MappingJackson2SmileHttpMessageConverter(), 1000, 500);
+    }
+
+    @Benchmark
+    public byte[] writeSections() throws Exception {
+        return body(pageWriter.write(null, null, null, 3, pages(sections, SectionDTO::secNo),
+                s -> new Object[]{s.courseId(), s.secId(), s.secNo()}));
+    }
+
+    @Benchmark
+    public byte[] writeEnrollments() throws Exception {
+        return body(pageWriter.write(null, null, null, 2, pages(enrollments, EnrollmentDTO::enrollmentId),
+                e -> new Object[]{e.name(), e.enrollmentId()}));
+    }
+
+    @Benchmark
+    public byte[] writeEnrollmentsCompact() throws Exception {
+        return body(pageWriter.writeCompact(null, null, null, 2, pages(enrollments, EnrollmentDTO::enrollmentId),
+                e -> new Object[]{e.name(), e.enrollmentId()},
+                "section", sectionHeader, "students", EnrollmentListDTO.Row::of));
+    }
+
+    @Benchmark
+    public byte[] writeGrades() throws Exception {
+        return body(pageWriter.write(null, null, null, 2, pages(grades, GradeDTO::gradeId),
+                g -> new Object[]{g.studentName(), g.gradeId()}));
+    }
+
+    @Benchmark
+    public byte[] writeGradesCompact() throws Exception {
+        return body(pageWriter.writeCompact(null, null, null, 2, pages(grades, GradeDTO::gradeId),
+                g -> new Object[]{g.studentName(), g.gradeId()},
+                "assignment", assignmentHeader, "grades", GradeListDTO.Row::of));
+    }
+
+    @Benchmark
+    public byte[] serializeAssignmentStudents() throws Exception {
+        return writer.writeValueAsBytes(assignmentStudents);
+    }
+
+    // pages of rows after the row whose id is the last part of the key
+    private static <T> KeysetPageWriter.PageQuery<T> pages(List<T> rows, Function<T, Integer> id) {
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            index.put(id.apply(rows.get(i)), i);
+        }
+        return (key, size) -> {
+            int from = key == null ? 0 : index.get(Integer.valueOf(key[key.length - 1])) + 1;
+            return rows.subList(from, Math.min(rows.size(), from + size));
+        };
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}
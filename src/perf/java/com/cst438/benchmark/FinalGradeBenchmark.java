@@ -0,0 +1,58 @@
+package com.cst438.benchmark;
+
+import com.cst438.dto.FinalGradeDTO;
+import com.cst438.service.FinalGradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Final grade computation for a 500 student section with 40 assignments and for a
+ * term of 10 such sections, generated by the largedata profile.  Only the first call
+ * changes enrollment grades, the measured calls read the scores and compute.
+ *
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args=FinalGradeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinalGradeBenchmark {
+
+    // first section created by LargeDatasetGenerator
+    private static final int SECTION_NO = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private FinalGradeService finalGradeService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(
+                "--spring.profiles.active=largedata",
+                "--gradebook.largedata.students=5000",
+                "--gradebook.largedata.instructors=10",
+                "--gradebook.largedata.sections=10",
+                "--gradebook.largedata.enrollments-per-student=1",
+                "--gradebook.largedata.assignments-per-section=40");
+        finalGradeService = context.getBean(FinalGradeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<FinalGradeDTO> computeSection() {
+        return finalGradeService.computeSection(SECTION_NO);
+    }
+
+    @Benchmark
+    public List<FinalGradeDTO> computeTerm() {
+        return finalGradeService.computeTerm(2025, "Fall");
+    }
+}
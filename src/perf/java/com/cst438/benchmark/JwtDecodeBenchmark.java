@@ -0,0 +1,69 @@
+package com.cst438.benchmark;
+
+import com.cst438.service.CachingJwtDecoder;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cold path: every decode parses the token and verifies the RSA signature.
+ * Warm path: the token was verified before and is returned from CachingJwtDecoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecodeBenchmark {
+
+    private String token;
+    private JwtDecoder nimbusDecoder;
+    private JwtDecoder cachingDecoder;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        JWK jwk = new RSAKey.Builder(publicKey).privateKey((RSAPrivateKey) keyPair.getPrivate()).build();
+        JwtEncoder encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk)));
+
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(now)
+                .expiresAt(now.plus(1, ChronoUnit.HOURS))
+                .subject("ted@csumb.edu")
+                .claim("scope", "ROLE_INSTRUCTOR")
+                .build();
+        token = encoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+
+        nimbusDecoder = NimbusJwtDecoder.withPublicKey(publicKey).build();
+        cachingDecoder = new CachingJwtDecoder(NimbusJwtDecoder.withPublicKey(publicKey).build(), 10_000, new SimpleMeterRegistry());
+        cachingDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt cold() {
+        return nimbusDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt warm() {
+        return cachingDecoder.decode(token);
+    }
+}
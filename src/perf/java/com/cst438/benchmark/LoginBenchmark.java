@@ -0,0 +1,124 @@
+package com.cst438.benchmark;
+
+import com.cst438.domain.RefreshTokenRepository;
+import com.cst438.domain.UserRepository;
+import com.cst438.service.RefreshTokenService;
+import com.cst438.service.TokenService;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.lang.reflect.Proxy;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Token issue cost of the two ways to get a JWT.
+ * passwordLogin: what GET /login does, BCrypt check, JWT and a new refresh token.
+ * refresh: what POST /login/refresh does, rotate the refresh token and sign a JWT.
+ * SampleTime mode reports p99 latency, Throughput mode tokens per second.
+ * The refresh_token table is replaced by a repository that stores nothing and the
+ * user lookup of a rotation by a repository that returns the same user.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String EMAIL = "ted@csumb.edu";
+    private static final String PASSWORD = "ted2025";
+    private static final String SCOPE = "ROLE_INSTRUCTOR";
+
+    private DaoAuthenticationProvider authenticationProvider;
+    private TokenService tokenService;
+    private RefreshTokenService refreshTokenService;
+    private String refreshToken;
+
+    @Setup
+    public void setup() throws Exception {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+                User.withUsername(EMAIL).password(passwordEncoder.encode(PASSWORD)).roles("INSTRUCTOR").build());
+        authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(users);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        JWK jwk = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                .privateKey((RSAPrivateKey) keyPair.getPrivate()).build();
+        tokenService = new TokenService(new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk))));
+
+        refreshTokenService = new RefreshTokenService(noopRepository(), userRepository(),
+                Duration.ofHours(12), Duration.ofDays(7), 10_000);
+        refreshToken = refreshTokenService.issue(EMAIL, SCOPE);
+    }
+
+    @Benchmark
+    public String passwordLogin() {
+        Authentication authentication = authenticationProvider.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(EMAIL, PASSWORD));
+        String scope = TokenService.scope(authentication);
+        refreshTokenService.issue(authentication.getName(), scope);
+        return tokenService.generateToken(authentication.getName(), scope, Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public String refresh() {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        refreshToken = rotation.refreshToken();
+        return tokenService.generateToken(rotation.email(), rotation.scope(), Duration.ofMinutes(15));
+    }
+
+    // every token is found in memory so the repository is only written to
+    private static RefreshTokenRepository noopRepository() {
+        return (RefreshTokenRepository) Proxy.newProxyInstance(
+                RefreshTokenRepository.class.getClassLoader(),
+                new Class<?>[]{RefreshTokenRepository.class},
+                (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    // revokeIfActive, the token was active
+                    if (type == int.class) {
+                        return 1;
+                    }
+                    if (type == long.class) {
+                        return 0L;
+                    }
+                    if (type == boolean.class) {
+                        return false;
+                    }
+                    if (type == Optional.class) {
+                        return Optional.empty();
+                    }
+                    return args != null && args.length == 1 ? args[0] : null;
+                });
+    }
+
+    private static UserRepository userRepository() {
+        com.cst438.domain.User user = new com.cst438.domain.User();
+        user.setEmail(EMAIL);
+        user.setType("INSTRUCTOR");
+        return (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> method.getName().equals("findByEmail") ? user : null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.cst438.benchmark;
+
+import com.cst438.dto.AssignmentStudentDTO;
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.GradeDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Size and encode/decode time of the roster sized lists in each response encoding,
+ * json, cbor and smile, see ResponseEncodingConfiguration.  The mappers are built the
+ * way the message converters build them.  Decoding is what the mobile client and the
+ * registrar do with a response.  The payload sizes are printed by setup.
+ * size is the number of rows in a section roster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    @Param({"30", "300"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String encoding;
+
+    private ObjectWriter writer;
+    private ObjectReader enrollmentReader;
+    private ObjectReader gradeReader;
+    private ObjectReader assignmentReader;
+
+    private List<EnrollmentDTO> enrollments;
+    private List<GradeDTO> grades;
+    private List<AssignmentStudentDTO> assignments;
+    private byte[] enrollmentBytes;
+    private byte[] gradeBytes;
+    private byte[] assignmentBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (encoding.equals("cbor")) {
+            builder.factory(new CBORFactory());
+        } else if (encoding.equals("smile")) {
+            builder.factory(new SmileFactory());
+        }
+        ObjectMapper mapper = builder.build();
+        writer = mapper.writer();
+        enrollmentReader = mapper.readerForListOf(EnrollmentDTO.class);
+        gradeReader = mapper.readerForListOf(GradeDTO.class);
+        assignmentReader = mapper.readerForListOf(AssignmentStudentDTO.class);
+
+        enrollments = new ArrayList<>();
+        grades = new ArrayList<>();
+        assignments = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String name = "student" + i;
+            String email = "student" + i + "@csumb.edu";
+            Integer score = i % 4 == 0 ? null : 60 + i % 40;
+            enrollments.add(new EnrollmentDTO(100 + i, i % 3 == 0 ? null : "B", 1000 + i, name, email,
+                    "cst438", "Software Engineering", 1, 1, "90", "B104", "M W 10:00-11:50", 4, 2025, "Fall"));
+            grades.add(new GradeDTO(i + 1, name, email, "Final Project", "cst438", 1, score));
+            assignments.add(new AssignmentStudentDTO(6000 + i, "Assignment " + i,
+                    Date.valueOf("2025-12-01"), "cst438", 1, score));
+        }
+        enrollmentBytes = serializeEnrollments();
+        gradeBytes = serializeGrades();
+        assignmentBytes = serializeAssignments();
+        System.out.printf("%n%s, %d rows: enrollments %d bytes, grades %d bytes, assignments %d bytes%n",
+                encoding, size, enrollmentBytes.length, gradeBytes.length, assignmentBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeEnrollments() throws Exception {
+        return writer.writeValueAsBytes(enrollments);
+    }
+
+    @Benchmark
+    public List<EnrollmentDTO> deserializeEnrollments() throws Exception {
+        return enrollmentReader.readValue(enrollmentBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeGrades() throws Exception {
+        return writer.writeValueAsBytes(grades);
+    }
+
+    @Benchmark
+    public List<GradeDTO> deserializeGrades() throws Exception {
+        return gradeReader.readValue(gradeBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeAssignments() throws Exception {
+        return writer.writeValueAsBytes(assignments);
+    }
+
+    @Benchmark
+    public List<AssignmentStudentDTO> deserializeAssignments() throws Exception {
+        return assignmentReader.readValue(assignmentBytes);
+    }
+}
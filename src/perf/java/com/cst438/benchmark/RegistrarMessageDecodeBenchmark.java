@@ -0,0 +1,74 @@
+package com.cst438.benchmark;
+
+import com.cst438.dto.EnrollmentDTO;
+import com.cst438.dto.SectionDTO;
+import com.cst438.dto.UserPasswordDTO;
+import com.cst438.service.RegistrarMessageCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Decode throughput of registrar messages.
+ * legacyDecode is the decoding done before RegistrarMessageCodec existed:
+ * split the string and read the payload with a new ObjectMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrarMessageDecodeBenchmark {
+
+    @Param({"addUser", "addSection", "addEnrollment"})
+    public String type;
+
+    private final RegistrarMessageCodec codec = new RegistrarMessageCodec();
+    private Class<?> payloadType;
+    private String text;
+    private byte[] textBytes;
+    private byte[] jsonEnvelope;
+    private byte[] cborEnvelope;
+
+    @Setup
+    public void setup() throws Exception {
+        Object payload = switch (type) {
+            case "addUser" -> new UserPasswordDTO(1234, "samantha student", "samantha@csumb.edu", "STUDENT",
+                    "$2a$10$B3E9IWa9fCy1SaMzfg1czu312d0xRAk1OU2sw5WOE7hs.SsLqGE9O");
+            case "addSection" -> new SectionDTO(42, 2025, "Fall", "cst438", "Software Engineering", 1,
+                    "90", "B104", "M W 10:00-11:50", "ted", "ted@csumb.edu");
+            default -> new EnrollmentDTO(98765, null, 1234, "samantha student", "samantha@csumb.edu",
+                    "cst438", "Software Engineering", 1, 42, "90", "B104", "M W 10:00-11:50", 4, 2025, "Fall");
+        };
+        payloadType = payload.getClass();
+        String json = new ObjectMapper().writeValueAsString(payload);
+        text = type + " " + json;
+        textBytes = text.getBytes(StandardCharsets.UTF_8);
+        jsonEnvelope = codec.encode(type, payload, RegistrarMessageCodec.JSON).getBody();
+        cborEnvelope = codec.encode(type, payload, RegistrarMessageCodec.CBOR).getBody();
+    }
+
+    @Benchmark
+    public Object legacyDecode() throws Exception {
+        String[] parts = text.split(" ", 2);
+        return new ObjectMapper().readValue(parts[1], payloadType);
+    }
+
+    @Benchmark
+    public Object codecText() {
+        return codec.decode(textBytes, RegistrarMessageCodec.TEXT);
+    }
+
+    @Benchmark
+    public Object codecJsonEnvelope() {
+        return codec.decode(jsonEnvelope, RegistrarMessageCodec.JSON);
+    }
+
+    @Benchmark
+    public Object codecCborEnvelope() {
+        return codec.decode(cborEnvelope, RegistrarMessageCodec.CBOR);
+    }
+}
@@ -0,0 +1,321 @@
+package com.cst438.loadtest;
+
+import com.cst438.dto.AssignmentDTO;
+import com.cst438.dto.LoginDTO;
+import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * HTTP load test against a running gradebook service.
+ *
+ * Each simulated user logs in, discovers its endpoints and then calls them round robin
+ * until the test ends.  Half the users are instructors, who call the section list and
+ * the assignment, enrollment and grade lists of their sections.  The other half are
+ * students, who call their assignment list.  Requests made during the warmup period
+ * are not recorded.
+ *
+ * With rate=0 every user sends its next request as soon as the previous one returns.
+ * With rate=N the users together send N requests per second on a fixed schedule.
+ * Latency is measured from the scheduled start, so a slow server is not hidden by
+ * requests that were sent late.
+ *
+ * Reported per endpoint: throughput, latency percentiles and, when the service runs
+ * with gradebook.sql-statement-count.enabled, the SQL statements per request.
+ *
+ * Compare the platform and virtual thread modes:
+ *   ./mvnw spring-boot:run
+ *   ./mvnw -Pjava21 spring-boot:run -Dspring-boot.run.profiles=virtual
+ * Load test the large generated campus, users instructor0..999 and student0..49999:
+ *   ./mvnw spring-boot:run -Dspring-boot.run.profiles=largedata
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Dperf.main=com.cst438.loadtest.LoadTest \
+ *          -Dperf.args="users=400 seconds=120 rate=2000 instructor=instructor%d@csumb.edu:password \
+ *          instructors=1000 student=student%d@csumb.edu:password students=50000"
+ *
+ * Arguments are key=value, see the defaults in Options.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTest test = new LoadTest(options);
+        test.run();
+        test.report(System.out);
+    }
+
+    // instructor and student are "email:password", a %d in the email is replaced by
+    // the user number modulo instructors or students
+    record Options(
+            String baseUrl,
+            int users,
+            int seconds,
+            int warmupSeconds,
+            double rate,
+            String label,
+            String instructor,
+            int instructors,
+            String student,
+            int students,
+            int year,
+            String semester,
+            int maxSections) {
+
+        static Options parse(String[] args) {
+            Map<String, String> m = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq > 0) {
+                    m.put(arg.substring(0, eq), arg.substring(eq + 1));
+                }
+            }
+            return new Options(
+                    m.getOrDefault("baseUrl", "http://localhost:8081"),
+                    Integer.parseInt(m.getOrDefault("users", "50")),
+                    Integer.parseInt(m.getOrDefault("seconds", "30")),
+                    Integer.parseInt(m.getOrDefault("warmup", "5")),
+                    Double.parseDouble(m.getOrDefault("rate", "0")),
+                    m.getOrDefault("label", "default"),
+                    m.getOrDefault("instructor", "ted@csumb.edu:ted2025"),
+                    Integer.parseInt(m.getOrDefault("instructors", "1")),
+                    m.getOrDefault("student", "sam@csumb.edu:sam2025"),
+                    Integer.parseInt(m.getOrDefault("students", "1")),
+                    Integer.parseInt(m.getOrDefault("year", "2025")),
+                    m.getOrDefault("semester", "Fall"),
+                    Integer.parseInt(m.getOrDefault("maxSections", "3")));
+        }
+
+        String credentials(boolean isInstructor, int user) {
+            String pattern = isInstructor ? instructor : student;
+            int count = isInstructor ? instructors : students;
+            return pattern.contains("%d") ? String.format(pattern, user % count) : pattern;
+        }
+    }
+
+    private static final String SQL_COUNT_HEADER = "X-Sql-Statement-Count";
+
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Recorder> recorders = new TreeMap<>();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+    private long measuredNanos;
+
+    LoadTest(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (String endpoint : List.of("/sections", "/sections/{id}/assignments", "/sections/{id}/enrollments",
+                "/assignments/{id}/grades", "/assignments", "/login")) {
+            recorders.put(endpoint, new Recorder());
+        }
+    }
+
+    void run() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(options.users());
+        CountDownLatch done = new CountDownLatch(options.users());
+        for (int i = 0; i < options.users(); i++) {
+            int user = i;
+            pool.execute(() -> {
+                try {
+                    userLoop(user);
+                } catch (Exception e) {
+                    System.err.println("user " + user + " stopped: " + e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds()));
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.seconds()));
+        recording = false;
+        measuredNanos = System.nanoTime() - start;
+        running = false;
+        done.await();
+        pool.shutdown();
+    }
+
+    private void userLoop(int user) throws Exception {
+        boolean isInstructor = user % 2 == 0;
+        String jwt = login(options.credentials(isInstructor, user / 2));
+        List<String> paths = isInstructor ? instructorPaths(jwt) : studentPaths();
+        if (paths.isEmpty()) {
+            return;
+        }
+        // each user sends its share of the target rate, users start spread over one interval
+        long intervalNanos = options.rate() > 0 ? (long) (options.users() * 1e9 / options.rate()) : 0;
+        long next = System.nanoTime() + (intervalNanos * user) / options.users();
+        for (int i = user; running; i++) {
+            if (intervalNanos > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } else {
+                next = System.nanoTime();
+            }
+            String path = paths.get(i % paths.size());
+            Result result = get(path, jwt);
+            long elapsed = System.nanoTime() - next;
+            if (recording) {
+                recorders.get(endpoint(path)).record(elapsed, result.ok(), result.sqlStatements());
+            }
+            next += intervalNanos;
+        }
+    }
+
+    // the instructor's sections in the term and the assignments of each section
+    private List<String> instructorPaths(String jwt) throws Exception {
+        String sectionsPath = "/sections?year=" + options.year() + "&semester=" + options.semester();
+        List<String> paths = new ArrayList<>();
+        paths.add(sectionsPath);
+        SectionDTO[] sections = mapper.readValue(get(sectionsPath, jwt).body(), SectionDTO[].class);
+        for (int s = 0; s < Math.min(sections.length, options.maxSections()); s++) {
+            int secNo = sections[s].secNo();
+            String assignmentsPath = "/sections/" + secNo + "/assignments";
+            paths.add(assignmentsPath);
+            paths.add("/sections/" + secNo + "/enrollments");
+            AssignmentDTO[] assignments = mapper.readValue(get(assignmentsPath, jwt).body(), AssignmentDTO[].class);
+            if (assignments.length > 0) {
+                paths.add("/assignments/" + assignments[assignments.length - 1].id() + "/grades");
+            }
+        }
+        return paths;
+    }
+
+    private List<String> studentPaths() {
+        return List.of("/assignments?year=" + options.year() + "&semester=" + options.semester());
+    }
+
+    private String login(String credentials) throws Exception {
+        String basic = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + "/login"))
+                .header("Authorization", "Basic " + basic)
+                .GET()
+                .build();
+        long t0 = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        recorders.get("/login").record(System.nanoTime() - t0, response.statusCode() == 200, -1);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("login failed for " + credentials.split(":")[0] + ": status " + response.statusCode());
+        }
+        return mapper.readValue(response.body(), LoginDTO.class).jwt();
+    }
+
+    private Result get(String path, String jwt) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+                .header("Authorization", "Bearer " + jwt)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            int sql = response.headers().firstValue(SQL_COUNT_HEADER).map(Integer::parseInt).orElse(-1);
+            return new Result(response.statusCode() == 200, sql, response.body());
+        } catch (Exception e) {
+            return new Result(false, -1, new byte[0]);
+        }
+    }
+
+    private record Result(boolean ok, int sqlStatements, byte[] body) {
+    }
+
+    // "/sections/2/assignments" and "/sections/1/assignments" are the same endpoint
+    static String endpoint(String path) {
+        int q = path.indexOf('?');
+        String p = q < 0 ? path : path.substring(0, q);
+        return p.replaceAll("/\\d+", "/{id}");
+    }
+
+    void report(java.io.PrintStream out) {
+        double seconds = measuredNanos / 1e9;
+        out.printf("mode %s, %d users, target rate %s, %.1f s measured%n", options.label(), options.users(),
+                options.rate() > 0 ? options.rate() + " req/s" : "closed loop", seconds);
+        out.printf("%-28s %9s %7s %9s %9s %9s %9s %9s %8s %8s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "sql avg", "sql max");
+        recorders.forEach((endpoint, r) -> {
+            long[] latencies = r.sorted();
+            if (latencies.length == 0) {
+                return;
+            }
+            // logins happen before the measurement starts, report them without a rate
+            double rate = endpoint.equals("/login") ? Double.NaN : latencies.length / seconds;
+            out.printf("%-28s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %8s %8s%n",
+                    endpoint, latencies.length, r.errors(), rate,
+                    millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.95)),
+                    millis(percentile(latencies, 0.99)), millis(percentile(latencies, 1.0)),
+                    r.sqlAverage(), r.sqlMax());
+        });
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // latencies of one endpoint in nanoseconds and the SQL statements of its requests
+    static class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private long sqlTotal;
+        private int sqlCount;
+        private int sqlMax;
+
+        synchronized void record(long nanos, boolean ok, int sqlStatements) {
+            if (!ok) {
+                errors++;
+            }
+            if (sqlStatements >= 0) {
+                sqlTotal += sqlStatements;
+                sqlCount++;
+                sqlMax = Math.max(sqlMax, sqlStatements);
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+
+        synchronized String sqlAverage() {
+            return sqlCount == 0 ? "-" : String.format("%.1f", (double) sqlTotal / sqlCount);
+        }
+
+        synchronized String sqlMax() {
+            return sqlCount == 0 ? "-" : Integer.toString(sqlMax);
+        }
+    }
+}
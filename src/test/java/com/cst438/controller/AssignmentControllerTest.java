@@ -102,6 +102,19 @@ class AssignmentControllerTest {
 //        }
     }
 
+    @Test
+    void getAssignmentsForMissingSection() {
+        String ted = login("ted@csumb.edu", "ted2025");
+
+        // ExceptionAdvisor reports every ResponseStatusException as a bad request
+        client.get().uri("/sections/99999/assignments")
+                .headers(headers -> headers.setBearerAuth(ted))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errors[0]").isEqualTo("Section not found.");
+    }
+
     @Test
     void createAssignment() {
         // Login as instructor Ted
@@ -4,16 +4,20 @@ package com.cst438.controller;
 import com.cst438.dto.EnrollmentDTO;
 import com.cst438.dto.LoginDTO;
 import com.cst438.service.RegistrarServiceProxy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 
 import java.util.Collections;
-import java.util.Map;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -142,7 +146,7 @@ public class EnrollmentControllerUnitTest {
 
         // Verify message sent to registrar
         org.mockito.Mockito.verify(registrarServiceProxy)
-                .sendMessage(org.mockito.ArgumentMatchers.eq("updateEnrollment"), org.mockito.ArgumentMatchers.any(Map.class));
+                .sendMessage(org.mockito.ArgumentMatchers.eq("updateEnrollments"), org.mockito.ArgumentMatchers.any(List.class));
 
         // Attempt to update Joe's enrollment (enrollmentId=101, studentId=4, sectionNo=2, which Ted does NOT teach)
         EnrollmentDTO joesEnrollment = new EnrollmentDTO(
@@ -158,4 +162,236 @@ public class EnrollmentControllerUnitTest {
                 .exchange()
                 .expectStatus().isBadRequest();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void updateEnrollmentGradeUnchangedTest() throws Exception {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(headers -> headers.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+
+        // an empty list
+        webTestClient.put().uri("/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isOk();
+
+        // the grades already stored
+        EnrollmentDTO[] enrollments = webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EnrollmentDTO[].class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(enrollments);
+        webTestClient.put().uri("/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(enrollments))
+                .exchange()
+                .expectStatus().isOk();
+
+        // no grade changed, nothing is sent to the registrar
+        org.mockito.Mockito.verify(registrarServiceProxy, org.mockito.Mockito.never())
+                .sendMessage(org.mockito.ArgumentMatchers.anyString(), org.mockito.ArgumentMatchers.any());
+    }
+
+    @Test
+    public void getEnrollmentsNotModifiedTest() throws Exception {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(headers -> headers.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        EntityExchangeResult<EnrollmentDTO[]> first = webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EnrollmentDTO[].class)
+                .returnResult();
+        String etag = first.getResponseHeaders().getETag();
+        assertNotNull(etag, "enrollments response should have an ETag");
+        assertFalse(etag.startsWith("W/"), "ETag should be strong");
+
+        // unchanged section, the body is not sent again
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+                })
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+
+        // a grade change in the section gives a new ETag
+        EnrollmentDTO e = first.getResponseBody()[0];
+        EnrollmentDTO updated = new EnrollmentDTO(e.enrollmentId(), e.grade() == null || !e.grade().equals("A") ? "A" : "B",
+                e.studentId(), e.name(), e.email(), e.courseId(), e.title(), e.sectionId(), e.sectionNo(),
+                e.building(), e.room(), e.times(), e.credits(), e.year(), e.semester());
+        webTestClient.put().uri("/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Collections.singletonList(updated))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+                })
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void getEnrollmentsPagedTest() throws Exception {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(headers -> headers.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        // section 2 has 3 enrollments
+        EntityExchangeResult<EnrollmentDTO[]> first = webTestClient.get().uri("/sections/2/enrollments?limit=2")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EnrollmentDTO[].class)
+                .returnResult();
+        assertEquals(2, first.getResponseBody().length);
+        String link = first.getResponseHeaders().getFirst(HttpHeaders.LINK);
+        assertNotNull(link, "first page should link to the next page");
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+        EntityExchangeResult<EnrollmentDTO[]> second = webTestClient.get().uri(next)
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EnrollmentDTO[].class)
+                .returnResult();
+        assertEquals(1, second.getResponseBody().length);
+        assertNull(second.getResponseHeaders().getFirst(HttpHeaders.LINK), "last page has no next link");
+        for (EnrollmentDTO e : first.getResponseBody()) {
+            assertNotEquals(e.enrollmentId(), second.getResponseBody()[0].enrollmentId());
+        }
+
+        webTestClient.get().uri("/sections/2/enrollments?after=not-a-cursor")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getEnrollmentsCborTest() throws Exception {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(headers -> headers.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        EntityExchangeResult<byte[]> cbor = webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult();
+        EnrollmentDTO[] enrollments = new ObjectMapper(new CBORFactory())
+                .readValue(cbor.getResponseBody(), EnrollmentDTO[].class);
+        assertEquals(3, enrollments.length);
+        for (EnrollmentDTO e : enrollments) {
+            assertEquals(2, e.sectionNo());
+        }
+
+        // the JSON array is another representation with another ETag
+        String json = webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> headers.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(byte[].class)
+                .getResponseHeaders().getETag();
+        assertNotNull(json);
+        assertNotEquals(json, cbor.getResponseHeaders().getETag());
+    }
+
+    @Test
+    public void getEnrollmentsNotAcceptableTest() throws Exception {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(headers -> headers.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+
+        // none of the listed types can be written
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.ACCEPT, "text/csv, text/html");
+                })
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+
+        // q=0 refuses a type
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.ACCEPT, "application/json;q=0");
+                })
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+
+        // a wildcard is answered in a type that is not refused
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.ACCEPT, "application/json;q=0, */*;q=0.5");
+                })
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR);
+
+        webTestClient.get().uri("/sections/2/enrollments")
+                .headers(headers -> {
+                    headers.setBearerAuth(jwt);
+                    headers.set(HttpHeaders.ACCEPT, "text/html, */*;q=0.8");
+                })
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,149 @@
+package com.cst438.controller;
+
+import com.cst438.domain.Enrollment;
+import com.cst438.domain.EnrollmentRepository;
+import com.cst438.domain.Grade;
+import com.cst438.domain.GradeRepository;
+import com.cst438.dto.CategoryDTO;
+import com.cst438.dto.FinalGradeDTO;
+import com.cst438.dto.LoginDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FinalGradeControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    // enrollment 100's grade from data.sql, other tests expect it
+    private String originalGrade;
+
+    @BeforeEach
+    public void saveGrade() {
+        originalGrade = enrollmentRepository.findById(100).orElseThrow().getGrade();
+    }
+
+    @AfterEach
+    public void restoreGrade() {
+        Enrollment enrollment = enrollmentRepository.findById(100).orElseThrow();
+        enrollment.setGrade(originalGrade);
+        enrollmentRepository.save(enrollment);
+    }
+
+    @Test
+    public void computeSectionGrades() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        saveCategories(jwt);
+
+        Grade grade = gradeRepository.findById(1).orElseThrow();
+        assertNotNull(grade.getScore());
+        FinalGradeDTO sam = compute(jwt);
+        // the Exams category has no graded assignment and is left out
+        assertEquals(grade.getScore().doubleValue(), sam.percentage(), 0.001);
+        String expected = grade.getScore() >= 90 ? "A" : grade.getScore() >= 80 ? "B"
+                : grade.getScore() >= 70 ? "C" : grade.getScore() >= 60 ? "D" : "F";
+        assertEquals(expected, sam.grade());
+        assertNull(sam.enteredGrade());
+        assertEquals(expected, enrollmentRepository.findById(100).orElseThrow().getGrade());
+    }
+
+    @Test
+    public void computeKeepsGradeEnteredByHand() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        saveCategories(jwt);
+        Enrollment enrollment = enrollmentRepository.findById(100).orElseThrow();
+        enrollment.setGrade("B+");
+        enrollmentRepository.save(enrollment);
+
+        FinalGradeDTO sam = compute(jwt);
+        assertEquals("B+", sam.enteredGrade());
+        assertNotNull(sam.grade());
+        assertEquals("B+", enrollmentRepository.findById(100).orElseThrow().getGrade());
+    }
+
+    // assignment 6000 is the only assignment that counts
+    private void saveCategories(String jwt) {
+        List<CategoryDTO> categories = List.of(
+                new CategoryDTO(0, "Projects", 60, List.of(6000)),
+                new CategoryDTO(0, "Exams", 40, List.of()));
+        CategoryDTO[] saved = webTestClient.put().uri("/sections/1/categories")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(categories)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CategoryDTO[].class)
+                .returnResult().getResponseBody();
+        assertNotNull(saved);
+        assertEquals(2, saved.length);
+        CategoryDTO projects = saved[0].name().equals("Projects") ? saved[0] : saved[1];
+        assertEquals(List.of(6000), projects.assignmentIds());
+    }
+
+    // the final grade of enrollment 100
+    private FinalGradeDTO compute(String jwt) {
+        FinalGradeDTO[] results = webTestClient.post().uri("/sections/1/grades/compute")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(FinalGradeDTO[].class)
+                .returnResult().getResponseBody();
+        assertNotNull(results);
+        FinalGradeDTO sam = null;
+        for (FinalGradeDTO r : results) {
+            if (r.enrollmentId() == 100) {
+                sam = r;
+            }
+        }
+        assertNotNull(sam, "enrollment 100 should have a final grade");
+        return sam;
+    }
+
+    @Test
+    public void updateCategoriesRejectsOtherSectionAssignment() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        webTestClient.put().uri("/sections/2/categories")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(new CategoryDTO(0, "Projects", 100, List.of(6000))))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void computeNotInstructor() {
+        String jwt = login("sam@csumb.edu", "sam2025");
+        webTestClient.post().uri("/sections/1/grades/compute")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    private String login(String email, String password) {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        return login.jwt();
+    }
+}
@@ -2,11 +2,17 @@ package com.cst438.controller;
 
 import com.cst438.domain.Grade;
 import com.cst438.domain.GradeRepository;
+import com.cst438.dto.AssignmentStatisticsDTO;
 import com.cst438.dto.GradeDTO;
+import com.cst438.dto.GradeListDTO;
+import com.cst438.dto.GradeUpdateResultDTO;
+import com.cst438.dto.GradebookDTO;
 import com.cst438.dto.LoginDTO;
+import com.cst438.service.AssignmentStatisticsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.http.MediaType;
@@ -24,6 +30,12 @@ public class GradeControllerUnitTest {
     @Autowired
     private GradeRepository gradeRepository;
 
+    @Autowired
+    private AssignmentStatisticsService statisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     public void getAssignmentGradesTest() throws Exception {
         String email = "ted@csumb.edu";
@@ -57,6 +69,49 @@ public class GradeControllerUnitTest {
         assertTrue(grades.length > 0, "There should be at least one grade for assignment 1");
     }
 
+    @Test
+    public void gradesCreatedForRosterOnceTest() throws Exception {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+
+        // a new assignment of section 1 has no grades yet
+        jdbcTemplate.update("insert into assignment (assignment_id, section_no, title, due_date) " +
+                "values (6900, 1, 'roster test', current_date)");
+        try {
+            Integer enrolled = jdbcTemplate.queryForObject(
+                    "select count(*) from enrollment where section_no = 1", Integer.class);
+            for (int i = 0; i < 2; i++) {
+                GradeDTO[] grades = webTestClient.get()
+                        .uri("/assignments/6900/grades")
+                        .headers(h -> h.setBearerAuth(jwt))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(GradeDTO[].class)
+                        .returnResult()
+                        .getResponseBody();
+                assertNotNull(grades);
+                assertEquals(enrolled, grades.length, "one grade per enrolled student");
+                for (GradeDTO g : grades) {
+                    assertNull(g.score());
+                }
+            }
+            // the second request found the grades and created none
+            assertEquals(enrolled, jdbcTemplate.queryForObject(
+                    "select count(*) from grade where assignment_id = 6900", Integer.class));
+        } finally {
+            jdbcTemplate.update("delete from grade where assignment_id = 6900");
+            jdbcTemplate.update("delete from assignment where assignment_id = 6900");
+        }
+    }
+
     @Test
     public void updateGradeTest() throws Exception {
         // Login and get JWT
@@ -138,4 +193,264 @@ public class GradeControllerUnitTest {
         assertNotNull(persisted, "Grade must still exist in DB");
         assertEquals(newScore, persisted.getScore().intValue(), "Grade score should be updated in DB");
     }
+
+    @Test
+    public void updateGradesPartialFailureTest() throws Exception {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+
+        // a second graded assignment of section 1, its grade gets an out of range score
+        jdbcTemplate.update("insert into assignment (assignment_id, section_no, title, due_date) " +
+                "values (6901, 1, 'partial test', current_date)");
+        jdbcTemplate.update("insert into grade (score, assignment_id, enrollment_id) values (70, 6901, 100)");
+        Integer originalScore = gradeRepository.findById(1).orElseThrow().getScore();
+        try {
+            Integer otherGradeId = jdbcTemplate.queryForObject(
+                    "select grade_id from grade where assignment_id = 6901", Integer.class);
+            int newScore = originalScore == null || originalScore != 95 ? 95 : 90;
+
+            List<GradeDTO> sheet = List.of(
+                    new GradeDTO(1, "sam", "sam@csumb.edu", "Final Project", "cst489", 1, newScore),
+                    new GradeDTO(999999, "nobody", "nobody@csumb.edu", "Final Project", "cst489", 1, 80),
+                    new GradeDTO(otherGradeId, "sam", "sam@csumb.edu", "partial test", "cst489", 1, 101));
+
+            GradeUpdateResultDTO[] results = webTestClient.put().uri("/grades")
+                    .headers(h -> h.setBearerAuth(jwt))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(sheet)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(GradeUpdateResultDTO[].class)
+                    .returnResult()
+                    .getResponseBody();
+
+            // one result per row, in the order of the sheet
+            assertNotNull(results);
+            assertEquals(3, results.length);
+            assertEquals(GradeUpdateResultDTO.ok(1, newScore), results[0]);
+            assertEquals(GradeUpdateResultDTO.failed(999999, "Grade not found for id 999999"), results[1]);
+            assertEquals(GradeUpdateResultDTO.failed(otherGradeId, "Score must be between 0 and 100"), results[2]);
+
+            // the valid row is saved, the failed row keeps its score
+            assertEquals(newScore, gradeRepository.findById(1).orElseThrow().getScore());
+            assertEquals(70, gradeRepository.findById(otherGradeId).orElseThrow().getScore());
+            assertFalse(gradeRepository.existsById(999999));
+        } finally {
+            jdbcTemplate.update("update grade set score = ? where grade_id = 1", originalScore);
+            jdbcTemplate.update("delete from grade where assignment_id = 6901");
+            jdbcTemplate.update("delete from assignment where assignment_id = 6901");
+        }
+    }
+
+    @Test
+    public void getGradebookTest() throws Exception {
+        String email = "ted@csumb.edu";
+        String password = "ted2025";
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        // GET /sections/1/gradebook
+        GradebookDTO gradebook = webTestClient.get()
+                .uri("/sections/1/gradebook")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradebookDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(gradebook, "Gradebook response should not be null");
+        assertEquals(gradebook.students().size(), gradebook.scores().length);
+        int row = -1;
+        for (int i = 0; i < gradebook.students().size(); i++) {
+            if (gradebook.students().get(i).enrollmentId() == 100) {
+                row = i;
+            }
+        }
+        int column = -1;
+        for (int i = 0; i < gradebook.assignments().size(); i++) {
+            if (gradebook.assignments().get(i).assignmentId() == 6000) {
+                column = i;
+            }
+        }
+        assertTrue(row >= 0, "enrollment 100 should be a row of the gradebook");
+        assertTrue(column >= 0, "assignment 6000 should be a column of the gradebook");
+        assertEquals(gradebook.assignments().size(), gradebook.scores()[row].length);
+
+        // grade 1 is the score of enrollment 100 for assignment 6000
+        Grade grade = gradeRepository.findById(1).orElseThrow();
+        assertEquals(grade.getScore(), gradebook.scores()[row][column]);
+    }
+
+    @Test
+    public void assignmentStatisticsTest() throws Exception {
+        String email = "ted@csumb.edu";
+        String password = "ted2025";
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        AssignmentStatisticsDTO before = getStatistics(jwt);
+        assertEquals(6000, before.assignmentId());
+        assertEquals(101, before.histogram().length);
+
+        // change grade 1 and check the statistics follow without a reload
+        Grade grade = gradeRepository.findById(1).orElseThrow();
+        Integer oldScore = grade.getScore();
+        int newScore = oldScore == null || oldScore != 42 ? 42 : 43;
+        GradeDTO dto = new GradeDTO(1, null, null, null, null, 0, newScore);
+        webTestClient.put().uri("/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(dto))
+                .exchange()
+                .expectStatus().isOk();
+
+        AssignmentStatisticsDTO after = getStatistics(jwt);
+        assertEquals(before.histogram()[newScore] + 1, after.histogram()[newScore]);
+        if (oldScore == null) {
+            assertEquals(before.graded() + 1, after.graded());
+            assertEquals(before.ungraded() - 1, after.ungraded());
+        } else {
+            assertEquals(before.histogram()[oldScore] - 1, after.histogram()[oldScore]);
+            assertEquals(before.graded(), after.graded());
+        }
+        assertNotNull(after.mean());
+        assertTrue(after.min() <= newScore && after.max() >= newScore);
+
+        // a student cannot read the statistics
+        String studentJwt = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("sam@csumb.edu", "sam2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+        webTestClient.get().uri("/assignments/6000/statistics")
+                .headers(h -> h.setBearerAuth(studentJwt))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    public void statisticsDroppedOnStaleOldScoreTest() throws Exception {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+        AssignmentStatisticsDTO before = getStatistics(jwt);
+
+        // a change whose old score is not counted, as when two requests read the same old score
+        int uncounted = 0;
+        while (before.histogram()[uncounted] > 0) {
+            uncounted++;
+        }
+        statisticsService.scoreChanged(6000, uncounted, uncounted == 100 ? 99 : uncounted + 1);
+
+        // the statistics are loaded again instead of going below zero
+        AssignmentStatisticsDTO after = getStatistics(jwt);
+        assertArrayEquals(before.histogram(), after.histogram());
+        assertEquals(before.graded(), after.graded());
+    }
+
+    private AssignmentStatisticsDTO getStatistics(String jwt) {
+        AssignmentStatisticsDTO statistics = webTestClient.get()
+                .uri("/assignments/6000/statistics")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AssignmentStatisticsDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(statistics, "statistics should not be null");
+        return statistics;
+    }
+
+    @Test
+    public void getAssignmentGradesCompactTest() throws Exception {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        GradeDTO[] full = webTestClient.get()
+                .uri("/assignments/6000/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradeDTO[].class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(full);
+
+        // selected by media type, the assignment fields are sent once
+        MediaType compact = MediaType.parseMediaType("application/vnd.gradebook.compact+json");
+        GradeListDTO list = webTestClient.get()
+                .uri("/assignments/6000/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(compact)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(compact)
+                .expectBody(GradeListDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(list);
+        assertEquals(6000, list.assignment().assignmentId());
+        assertEquals(full[0].assignmentTitle(), list.assignment().title());
+        assertEquals(full[0].courseId(), list.assignment().courseId());
+        assertEquals(full.length, list.grades().size());
+        for (int i = 0; i < full.length; i++) {
+            assertEquals(full[i].gradeId(), list.grades().get(i).gradeId());
+            assertEquals(full[i].score(), list.grades().get(i).score());
+        }
+
+        // selected by query flag
+        webTestClient.get()
+                .uri("/assignments/6000/grades?view=compact")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.assignment.assignmentId").isEqualTo(6000)
+                .jsonPath("$.grades").isArray();
+    }
 }
@@ -0,0 +1,135 @@
+package com.cst438.controller;
+
+import com.cst438.dto.LoginDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class GradeExportControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void exportSectionCsv() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        byte[] body = webTestClient.get().uri("/sections/1/grades/export?format=csv")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(new MediaType("text", "csv"))
+                .expectBody().returnResult().getResponseBody();
+        assertNotNull(body);
+        String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].startsWith("secNo,courseId,secId"), "first line is the header");
+        assertTrue(lines.length >= 2, "section 1 has at least one grade row");
+        assertTrue(lines[1].contains("sam@csumb.edu"));
+        assertTrue(lines[1].contains("6000"));
+    }
+
+    @Test
+    public void exportSectionWithoutAssignments() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        Integer enrolled = jdbcTemplate.queryForObject(
+                "select count(*) from enrollment where section_no = 2", Integer.class);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from assignment where section_no = 2", Integer.class));
+        byte[] body = webTestClient.get().uri("/sections/2/grades/export?format=csv")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+        assertNotNull(body);
+        String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+        // one row per enrolled student with empty assignment columns
+        assertEquals(enrolled + 1, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i].endsWith(",,,,"), lines[i]);
+        }
+    }
+
+    @Test
+    public void exportCsvFormulaIsText() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        jdbcTemplate.update("insert into assignment (assignment_id, section_no, title, due_date) " +
+                "values (6902, 1, '=HYPERLINK(\"http://example.com\";\"x\")', current_date)");
+        try {
+            byte[] body = webTestClient.get().uri("/sections/1/grades/export?format=csv")
+                    .headers(h -> h.setBearerAuth(jwt))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().returnResult().getResponseBody();
+            assertNotNull(body);
+            String text = new String(body, StandardCharsets.UTF_8);
+            assertTrue(text.contains(",6902,\"'=HYPERLINK(\"\"http://example.com\"\";\"\"x\"\")\","), text);
+            assertFalse(text.contains(",=HYPERLINK"));
+        } finally {
+            jdbcTemplate.update("delete from grade where assignment_id = 6902");
+            jdbcTemplate.update("delete from assignment where assignment_id = 6902");
+        }
+    }
+
+    @Test
+    public void exportSectionNdjsonGzip() throws Exception {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        // a plain client, the WebTestClient connector decompresses the body and drops Content-Encoding
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/sections/1/grades/export?format=ndjson"))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        String text;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = text.split("\n");
+        assertTrue(lines.length >= 1);
+        assertTrue(lines[0].startsWith("{\"secNo\":1,"), "one JSON object per line");
+    }
+
+    @Test
+    public void exportSectionNotInstructor() {
+        String jwt = login("sam@csumb.edu", "sam2025");
+        webTestClient.get().uri("/sections/1/grades/export")
+                .headers(h -> h.setBearerAuth(jwt))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    private String login(String email, String password) {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        return login.jwt();
+    }
+}
@@ -0,0 +1,129 @@
+package com.cst438.controller;
+
+import com.cst438.domain.Grade;
+import com.cst438.domain.GradeRepository;
+import com.cst438.dto.GradeImportResultDTO;
+import com.cst438.dto.LoginDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class GradeImportControllerTest {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Test
+    public void importAssignmentGrades() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        String csv = "email,score\n" +
+                "sam@csumb.edu,77\n" +
+                "nobody@csumb.edu,50\n" +
+                "sam@csumb.edu,101\n";
+
+        GradeImportResultDTO result = webTestClient.post().uri("/assignments/6000/grades/import")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(TEXT_CSV)
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradeImportResultDTO.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(3, result.rows());
+        assertEquals(1, result.updated());
+        assertEquals(2, result.errors().size());
+        assertEquals(3, result.errors().get(0).line());
+        assertEquals(4, result.errors().get(1).line());
+
+        Grade grade = gradeRepository.findByStudentEmailAndAssignmentId("sam@csumb.edu", 6000);
+        assertNotNull(grade);
+        assertEquals(77, grade.getScore());
+    }
+
+    @Test
+    public void importWithByteOrderMarkAndMultiLineField() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        String csv = "\uFEFFemail,score,comment\n" +
+                "sam@csumb.edu,78,\"late,\nsubmitted \"\"by email\"\"\"\n" +
+                "nobody@csumb.edu,50,\n";
+
+        GradeImportResultDTO result = importAssignment(jwt, csv);
+        assertEquals(2, result.rows());
+        assertEquals(1, result.updated());
+        assertEquals(1, result.errors().size());
+        // the quoted comment takes lines 2 and 3
+        assertEquals(4, result.errors().get(0).line());
+        assertEquals(78, gradeRepository.findByStudentEmailAndAssignmentId("sam@csumb.edu", 6000).getScore());
+    }
+
+    @Test
+    public void importMatchesEmailWithoutCase() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        GradeImportResultDTO result = importAssignment(jwt, "Email,Score\nSam@CSUMB.edu,81\n");
+        assertEquals(1, result.updated());
+        assertTrue(result.errors().isEmpty());
+        assertEquals(81, gradeRepository.findByStudentEmailAndAssignmentId("sam@csumb.edu", 6000).getScore());
+    }
+
+    @Test
+    public void importUnclosedQuoteIsRowError() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        String csv = "email,score,comment\n" +
+                "sam@csumb.edu,79,\"no closing quote\n" +
+                "sam@csumb.edu,80,\n";
+
+        GradeImportResultDTO result = importAssignment(jwt, csv);
+        assertEquals(0, result.updated());
+        assertEquals(1, result.errors().size());
+        assertEquals(2, result.errors().get(0).line());
+        assertEquals("quoted field is not closed", result.errors().get(0).error());
+    }
+
+    private GradeImportResultDTO importAssignment(String jwt, String csv) {
+        GradeImportResultDTO result = webTestClient.post().uri("/assignments/6000/grades/import")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(TEXT_CSV)
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradeImportResultDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(result);
+        return result;
+    }
+
+    @Test
+    public void importSectionGradesMissingColumn() {
+        String jwt = login("ted@csumb.edu", "ted2025");
+        webTestClient.post().uri("/sections/1/grades/import")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(TEXT_CSV)
+                .bodyValue("email,score\nsam@csumb.edu,80\n")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private String login(String email, String password) {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        return login.jwt();
+    }
+}
@@ -0,0 +1,164 @@
+package com.cst438.controller;
+
+import com.cst438.dto.AssignmentStatisticsDTO;
+import com.cst438.dto.GradeDTO;
+import com.cst438.dto.GradebookDTO;
+import com.cst438.dto.LoginDTO;
+import com.cst438.service.GradeWriteBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// PUT /grades in write-behind mode, the scheduled flush is pushed out of the way
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "gradebook.grade-buffer.enabled=true",
+        "gradebook.grade-buffer.flush-interval-ms=3600000"})
+public class GradeWriteBufferTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GradeWriteBuffer gradeBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void bufferedGradeTest() throws Exception {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        String jwt = login.jwt();
+
+        // grade 1 is enrollment 100's grade for assignment 6000
+        GradeDTO original = find(getGrades(jwt), 1);
+        Integer stored = storedScore(1);
+        int first = stored == null || stored != 50 ? 50 : 51;
+        int last = first + 1;
+
+        // two saves of the same cell, only the last one is written
+        putScore(jwt, original, first);
+        putScore(jwt, original, last);
+        assertEquals(stored, storedScore(1), "score is not written before the flush");
+        assertEquals(last, find(getGrades(jwt), 1).score(), "grade list shows the buffered score");
+        assertEquals(last, gradebookScore(jwt, 100, 6000), "gradebook shows the buffered score");
+        AssignmentStatisticsDTO statistics = webTestClient.get().uri("/assignments/6000/statistics")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AssignmentStatisticsDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(statistics);
+        assertTrue(statistics.histogram()[last] >= 1, "statistics count the buffered score");
+        assertEquals(stored, storedScore(1), "reading does not flush the buffer");
+
+        assertEquals(1, gradeBuffer.flush());
+        assertEquals(last, storedScore(1));
+        assertTrue(gradeBuffer.isEmpty());
+
+        // restore the score other tests expect
+        putScore(jwt, original, stored);
+        gradeBuffer.flush();
+        assertEquals(stored, storedScore(1));
+    }
+
+    @Test
+    public void rolledBackWriteIsNotBufferedTest() {
+        gradeBuffer.reserve(1);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                gradeBuffer.write(1, null, 77, () -> {});
+                status.setRollbackOnly();
+            });
+        } finally {
+            gradeBuffer.release(1);
+        }
+        assertTrue(gradeBuffer.isEmpty());
+        assertEquals(0, gradeBuffer.flush());
+    }
+
+    private GradeDTO[] getGrades(String jwt) {
+        return webTestClient.get()
+                .uri("/assignments/6000/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradeDTO[].class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private void putScore(String jwt, GradeDTO g, Integer score) {
+        GradeDTO dto = new GradeDTO(g.gradeId(), g.studentName(), g.studentEmail(), g.assignmentTitle(),
+                g.courseId(), g.sectionId(), score);
+        webTestClient.put().uri("/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(dto))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private Integer gradebookScore(String jwt, int enrollmentId, int assignmentId) {
+        GradebookDTO gradebook = webTestClient.get()
+                .uri("/sections/1/gradebook")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GradebookDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(gradebook);
+        int row = -1;
+        int column = -1;
+        for (int r = 0; r < gradebook.students().size(); r++) {
+            if (gradebook.students().get(r).enrollmentId() == enrollmentId) {
+                row = r;
+            }
+        }
+        for (int c = 0; c < gradebook.assignments().size(); c++) {
+            if (gradebook.assignments().get(c).assignmentId() == assignmentId) {
+                column = c;
+            }
+        }
+        assertTrue(row >= 0 && column >= 0, "cell not in the gradebook");
+        return gradebook.scores()[row][column];
+    }
+
+    private Integer storedScore(int gradeId) {
+        return jdbcTemplate.queryForObject("select score from grade where grade_id = ?", Integer.class, gradeId);
+    }
+
+    private static GradeDTO find(GradeDTO[] grades, int gradeId) {
+        assertNotNull(grades);
+        for (GradeDTO g : grades) {
+            if (g.gradeId() == gradeId) {
+                return g;
+            }
+        }
+        fail("grade " + gradeId + " not in the list");
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package com.cst438.controller;
+
+import com.cst438.domain.RefreshTokenRepository;
+import com.cst438.domain.User;
+import com.cst438.domain.UserRepository;
+import com.cst438.dto.LoginDTO;
+import com.cst438.dto.RefreshTokenDTO;
+import com.cst438.dto.SectionDTO;
+import com.cst438.service.RefreshTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LoginControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void refreshTokenIsRotated() {
+        LoginDTO login = login("ted@csumb.edu", "ted2025");
+        assertNotNull(login.refreshToken(), "login should return a refresh token");
+        assertEquals("INSTRUCTOR", login.role());
+
+        LoginDTO refreshed = refresh(login.refreshToken());
+        assertEquals("INSTRUCTOR", refreshed.role());
+        assertNotEquals(login.refreshToken(), refreshed.refreshToken());
+
+        // the new JWT is accepted by a secured endpoint
+        webTestClient.get().uri("/sections?year=2025&semester=Fall")
+                .headers(h -> h.setBearerAuth(refreshed.jwt()))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(SectionDTO[].class);
+    }
+
+    @Test
+    public void reusedRefreshTokenRevokesFamily() {
+        LoginDTO login = login("ted@csumb.edu", "ted2025");
+        LoginDTO refreshed = refresh(login.refreshToken());
+
+        // the first token was already exchanged
+        webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(login.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // and reusing it revoked the token issued from it
+        webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(refreshed.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void refreshTokenUsedOnAnotherInstanceIsReuse() {
+        LoginDTO login = login("ted@csumb.edu", "ted2025");
+        // a second instance shares the database but not the in-memory cache
+        RefreshTokenService other = new RefreshTokenService(refreshTokenRepository, userRepository,
+                Duration.ofHours(1), Duration.ofDays(7), 100);
+        RefreshTokenService.Rotation rotated = other.rotate(login.refreshToken());
+
+        // this instance still has the token cached, the database says it was used
+        webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(login.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // and the token issued by the other instance was revoked with its family
+        webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(rotated.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void revokedRefreshTokenIsRejected() {
+        LoginDTO login = login("ted@csumb.edu", "ted2025");
+        webTestClient.post().uri("/login/revoke")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(login.refreshToken()))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(login.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void refreshUsesTheCurrentUser() {
+        RefreshTokenService service = new RefreshTokenService(refreshTokenRepository, userRepository,
+                Duration.ofHours(1), Duration.ofDays(7), 100);
+        User user = new User();
+        user.setId(9001);
+        user.setName("pat");
+        user.setEmail("pat@csumb.edu");
+        user.setPassword("x");
+        user.setType("INSTRUCTOR");
+        userRepository.save(user);
+        try {
+            String token = service.issue("pat@csumb.edu", "ROLE_INSTRUCTOR");
+
+            // the registrar changed the user's type, the next token has the new scope
+            user.setType("STUDENT");
+            userRepository.save(user);
+            RefreshTokenService.Rotation rotated = service.rotate(token);
+            assertEquals("ROLE_STUDENT", rotated.scope());
+
+            // the registrar deleted the user
+            userRepository.delete(user);
+            assertThrows(BadCredentialsException.class, () -> service.rotate(rotated.refreshToken()));
+        } finally {
+            userRepository.deleteById(9001);
+        }
+    }
+
+    @Test
+    public void familyCannotBeRefreshedPastMaxLifetime() throws Exception {
+        RefreshTokenService service = new RefreshTokenService(refreshTokenRepository, userRepository,
+                Duration.ofHours(1), Duration.ofMillis(200), 100);
+        String token = service.issue("ted@csumb.edu", "ROLE_INSTRUCTOR");
+        String next = service.rotate(token).refreshToken();
+
+        Thread.sleep(300);
+        assertThrows(BadCredentialsException.class, () -> service.rotate(next));
+    }
+
+    private LoginDTO login(String email, String password) {
+        LoginDTO login = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth(email, password))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        return login;
+    }
+
+    private LoginDTO refresh(String refreshToken) {
+        LoginDTO login = webTestClient.post().uri("/login/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDTO(refreshToken))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult().getResponseBody();
+        assertNotNull(login, "LoginDTO should not be null");
+        return login;
+    }
+}
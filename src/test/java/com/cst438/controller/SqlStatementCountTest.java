@@ -0,0 +1,65 @@
+package com.cst438.controller;
+
+import com.cst438.SqlStatementCounter;
+import com.cst438.dto.LoginDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the X-Sql-Statement-Count header used by the load test
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "gradebook.sql-statement-count.enabled=true")
+public class SqlStatementCountTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void jdbcTemplateStatementsAreCounted() {
+        SqlStatementCounter.reset();
+        jdbcTemplate.queryForObject("select count(*) from grade", Integer.class);
+        jdbcTemplate.update("update grade set score = score where grade_id = ?", 1);
+        assertEquals(2, SqlStatementCounter.count());
+    }
+
+    @Test
+    public void headerOnJsonResponseOnly() {
+        String jwt = webTestClient.get().uri("/login")
+                .headers(h -> h.setBasicAuth("ted@csumb.edu", "ted2025"))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .jwt();
+
+        // statistics are loaded with JdbcTemplate
+        String count = webTestClient.get().uri("/assignments/6000/statistics")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getFirst(SqlStatementCountAdvice.HEADER);
+        assertNotNull(count);
+        assertTrue(Integer.parseInt(count) >= 2, count);
+
+        // the grade list is streamed, its statements run after the headers are sent
+        webTestClient.get().uri("/assignments/6000/grades")
+                .headers(h -> h.setBearerAuth(jwt))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(SqlStatementCountAdvice.HEADER);
+    }
+}
@@ -0,0 +1,28 @@
+package com.cst438.domain;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// records the SQL Hibernate generates so RepositoryQueryPlanTest can EXPLAIN it
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (statements) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    public static List<String> drain() {
+        synchronized (statements) {
+            List<String> result = new ArrayList<>(statements);
+            statements.clear();
+            return result;
+        }
+    }
+}
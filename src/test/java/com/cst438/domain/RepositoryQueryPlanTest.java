@@ -0,0 +1,125 @@
+package com.cst438.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs each repository query, captures the SQL Hibernate generates and checks the
+// H2 EXPLAIN plan.  a query that reads a table without using an index fails the test.
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.cst438.domain.CapturingStatementInspector")
+public class RepositoryQueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SectionRepository sectionRepository;
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+    @Autowired
+    private GradeRepository gradeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TermRepository termRepository;
+    @Autowired
+    private AssignmentCategoryRepository categoryRepository;
+
+    @BeforeEach
+    public void clear() {
+        CapturingStatementInspector.drain();
+    }
+
+    @Test
+    public void sectionQueriesUseIndexes() {
+        sectionRepository.findByInstructorEmailAndYearAndSemester("ted@csumb.edu", 2025, "Fall");
+        assertIndexed();
+        sectionRepository.findBySectionNo(1);
+        assertIndexed();
+        sectionRepository.findSectionOwnersForTermsEndingOnOrAfter(Date.valueOf("2025-01-01"));
+        assertIndexed();
+        sectionRepository.findGradebookBySectionNo(1);
+        assertIndexed();
+        sectionRepository.findPageByInstructorEmailAndYearAndSemester("ted@csumb.edu", 2025, "Fall", "", 0, 0, Limit.of(10));
+        assertIndexed();
+    }
+
+    @Test
+    public void enrollmentQueriesUseIndexes() {
+        enrollmentRepository.findEnrollmentsBySectionNoOrderByStudentName(2);
+        assertIndexed();
+        enrollmentRepository.findPageBySectionNo(2, "", 0, Limit.of(10));
+        assertIndexed();
+    }
+
+    @Test
+    public void assignmentQueriesUseIndexes() {
+        assignmentRepository.findBySectionNo(1);
+        assertIndexed();
+        assignmentRepository.findStudentAssignmentsByEmailAndYearAndSemester("sam@csumb.edu", 2025, "Fall");
+        assertIndexed();
+    }
+
+    @Test
+    public void categoryQueriesUseIndexes() {
+        categoryRepository.findBySectionNo(1);
+        assertIndexed();
+    }
+
+    @Test
+    public void gradeQueriesUseIndexes() {
+        gradeRepository.findByStudentEmailAndAssignmentId("sam@csumb.edu", 6000);
+        assertIndexed();
+        gradeRepository.findPageByAssignmentId(6000, "", 0, Limit.of(10));
+        assertIndexed();
+    }
+
+    @Test
+    public void userAndTermQueriesUseIndexes() {
+        userRepository.findByEmail("ted@csumb.edu");
+        assertIndexed();
+        termRepository.findByYearAndSemester(2025, "Fall");
+        assertIndexed();
+    }
+
+    // EXPLAIN every select captured since the last call
+    private void assertIndexed() {
+        List<String> statements = CapturingStatementInspector.drain();
+        assertFalse(statements.isEmpty(), "no SQL captured");
+        for (String sql : statements) {
+            if (!sql.trim().toLowerCase().startsWith("select")) {
+                continue;
+            }
+            String plan = explain(sql);
+            assertFalse(plan.contains(".tableScan"), "table scan in plan\n" + plan + "\nfor\n" + sql);
+        }
+    }
+
+    // the plan does not depend on parameter values, every parameter is bound to null
+    private String explain(String sql) {
+        int parameters = (int) sql.chars().filter(c -> c == '?').count();
+        return jdbcTemplate.query("explain " + sql,
+                ps -> {
+                    for (int i = 1; i <= parameters; i++) {
+                        ps.setObject(i, null);
+                    }
+                },
+                rs -> {
+                    StringBuilder plan = new StringBuilder();
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                });
+    }
+}
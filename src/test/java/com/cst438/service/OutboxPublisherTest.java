@@ -0,0 +1,89 @@
+package com.cst438.service;
+
+import com.cst438.domain.OutboxMessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// the outbox with the broker mocked, the scheduled poll is pushed out of the way
+@SpringBootTest(properties = "gradebook.outbox.poll-interval-ms=3600000")
+public class OutboxPublisherTest {
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private RegistrarServiceProxy registrar;
+
+    @Autowired
+    private OutboxPublisher publisher;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanup() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    public void sendMessageWritesRowInCallersTransaction() {
+        long before = outboxRepository.count();
+        transactionTemplate.executeWithoutResult(status -> {
+            registrar.sendMessage("updateEnrollments", Map.of("enrollmentId", 100, "grade", "A"));
+            assertEquals(before + 1, outboxRepository.count(), "row is visible in the caller's transaction");
+        });
+        assertEquals(before + 1, outboxRepository.count());
+        assertEquals(before + 1, meterRegistry.get("gradebook.outbox.depth").gauge().value());
+        // nothing is sent to the broker until the publisher runs
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void rolledBackTransactionLeavesNoRow() {
+        long before = outboxRepository.count();
+        transactionTemplate.executeWithoutResult(status -> {
+            registrar.sendMessage("updateEnrollments", Map.of("enrollmentId", 100, "grade", "A"));
+            status.setRollbackOnly();
+        });
+        assertEquals(before, outboxRepository.count());
+    }
+
+    @Test
+    public void publishedRowIsDeleted() {
+        RabbitOperations operations = mock(RabbitOperations.class);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+
+        registrar.sendMessage("updateEnrollments", Map.of("enrollmentId", 100, "grade", "A"));
+        registrar.sendMessage("updateEnrollments", Map.of("enrollmentId", 101, "grade", "B"));
+        assertEquals(2, outboxRepository.count());
+
+        publisher.publishPending();
+
+        verify(operations, times(2)).send(eq(OutboxPublisher.REGISTRAR_QUEUE), any(Message.class));
+        verify(operations).waitForConfirmsOrDie(anyLong());
+        assertEquals(0, outboxRepository.count());
+        assertEquals(0, meterRegistry.get("gradebook.outbox.depth").gauge().value());
+    }
+}
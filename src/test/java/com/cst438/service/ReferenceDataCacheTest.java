@@ -0,0 +1,86 @@
+package com.cst438.service;
+
+import com.cst438.domain.Course;
+import com.cst438.domain.Section;
+import com.cst438.domain.SectionRepository;
+import com.cst438.domain.Term;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// section snapshots with the repository mocked
+public class ReferenceDataCacheTest {
+
+    private final SectionRepository sectionRepository = mock(SectionRepository.class);
+    private final ReferenceDataCache cache =
+            new ReferenceDataCache(sectionRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    @Test
+    public void sectionIsLoadedOnce() {
+        when(sectionRepository.findById(1)).thenReturn(Optional.of(section(1, "cst438")));
+
+        assertEquals("cst438", cache.getSection(1).courseId());
+        assertEquals("cst438", cache.getSection(1).courseId());
+        verify(sectionRepository, times(1)).findById(1);
+
+        // a missing section is not cached
+        assertNull(cache.getSection(2));
+        assertNull(cache.getSection(2));
+        verify(sectionRepository, times(2)).findById(2);
+    }
+
+    @Test
+    public void invalidateSection() {
+        when(sectionRepository.findById(1)).thenReturn(Optional.of(section(1, "cst438")));
+        when(sectionRepository.findById(2)).thenReturn(Optional.of(section(2, "cst438")));
+        cache.getSection(1);
+        cache.getSection(2);
+
+        cache.invalidateSection(1);
+        cache.getSection(1);
+        cache.getSection(2);
+        verify(sectionRepository, times(2)).findById(1);
+        verify(sectionRepository, times(1)).findById(2);
+    }
+
+    @Test
+    public void invalidateCourse() {
+        when(sectionRepository.findById(1)).thenReturn(Optional.of(section(1, "cst438")));
+        when(sectionRepository.findById(2)).thenReturn(Optional.of(section(2, "cst363")));
+        // a section built without a course has a null courseId
+        when(sectionRepository.findById(3)).thenReturn(Optional.of(section(3, null)));
+        cache.getSection(1);
+        cache.getSection(2);
+        assertNull(cache.getSection(3).courseId());
+
+        cache.invalidateCourse("cst438");
+        cache.getSection(1);
+        cache.getSection(2);
+        cache.getSection(3);
+        verify(sectionRepository, times(2)).findById(1);
+        verify(sectionRepository, times(1)).findById(2);
+        verify(sectionRepository, times(1)).findById(3);
+    }
+
+    private static Section section(int sectionNo, String courseId) {
+        Section s = new Section();
+        s.setSectionNo(sectionNo);
+        s.setSectionId(1);
+        if (courseId != null) {
+            Course c = new Course();
+            c.setCourseId(courseId);
+            c.setTitle(courseId);
+            s.setCourse(c);
+        }
+        Term t = new Term();
+        t.setYear(2025);
+        t.setSemester("Fall");
+        s.setTerm(t);
+        return s;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cst438.service;
+
+import com.cst438.RabbitConfiguration;
+import com.cst438.dto.RegistrarMessageDTO;
+import com.cst438.dto.UserPasswordDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// batches of registrar events with the registrar and the broker mocked
+public class RegistrarEventConsumerTest {
+
+    private final RegistrarServiceProxy registrar = mock(RegistrarServiceProxy.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RegistrarEventConsumer consumer =
+            new RegistrarEventConsumer(registrar, new RegistrarMessageCodec(), rabbitTemplate, 4, false);
+
+    // type and key of each applied event, in the order they were applied
+    private final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void shutdown() {
+        consumer.shutdown();
+    }
+
+    @Test
+    public void entityKind() {
+        assertEquals("Section", RegistrarEventConsumer.entityKind("addSection"));
+        assertEquals("Section", RegistrarEventConsumer.entityKind("updateSection"));
+        assertEquals("Enrollment", RegistrarEventConsumer.entityKind("deleteEnrollment"));
+    }
+
+    @Test
+    public void sameKeySamePartition() {
+        for (int key = 0; key < 100; key++) {
+            int p = RegistrarEventConsumer.partition(Integer.toString(key), 4);
+            assertTrue(p >= 0 && p < 4);
+            assertEquals(p, RegistrarEventConsumer.partition(Integer.toString(key), 4));
+        }
+    }
+
+    @Test
+    public void eventsOfOneKeyAppliedInOrderAndRunsInSequence() throws Exception {
+        recordApplied();
+        List<Message> batch = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int id = 1; id <= 8; id++) {
+                batch.add(text("updateUser " + user(id, "user" + id + "-" + round)));
+            }
+        }
+        for (int id = 1; id <= 8; id++) {
+            batch.add(text("deleteEnrollment " + id));
+        }
+
+        consumer.receive(batch);
+
+        assertEquals(32, applied.size());
+        // every user event is applied before the first enrollment event
+        for (int i = 0; i < 24; i++) {
+            assertTrue(applied.get(i).startsWith("updateUser"), applied.toString());
+        }
+        // the events of one user are applied in the order they were received
+        for (int id = 1; id <= 8; id++) {
+            String prefix = "updateUser " + id + " ";
+            List<String> events = applied.stream().filter(a -> a.startsWith(prefix)).toList();
+            assertEquals(List.of(prefix + "user" + id + "-0", prefix + "user" + id + "-1", prefix + "user" + id + "-2"),
+                    events);
+        }
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void unknownTypeIsDeadLetteredWithoutRetry() throws Exception {
+        doThrow(new IllegalArgumentException("unknown message addGrade"))
+                .when(registrar).apply(argThat(m -> m.type().equals("addGrade")));
+        Message unknown = text("addGrade 42");
+
+        consumer.receive(List.of(unknown, text("deleteUser 7")));
+
+        verify(rabbitTemplate).send(RabbitConfiguration.REGISTRAR_DEAD_LETTER_QUEUE, unknown);
+        assertEquals("unknown message addGrade", unknown.getMessageProperties().getHeader("x-exception-message"));
+        verify(registrar, times(2)).apply(any());
+    }
+
+    @Test
+    public void failedEventFailsBatchAndIsDeadLetteredOnRecover() throws Exception {
+        doThrow(new TransientDataAccessResourceException("database unavailable"))
+                .when(registrar).apply(argThat(m -> m.key().equals("2")));
+        Message ok = text("deleteUser 1");
+        Message failing = text("deleteUser 2");
+        List<Message> batch = List.of(ok, failing);
+
+        // the container retries the same batch, the applied event is skipped
+        assertThrows(IllegalStateException.class, () -> consumer.receive(batch));
+        assertThrows(IllegalStateException.class, () -> consumer.receive(batch));
+        verify(registrar, times(1)).apply(argThat(m -> m.key().equals("1")));
+        verify(registrar, times(2)).apply(argThat(m -> m.key().equals("2")));
+
+        consumer.recover(batch, new IllegalStateException("retries exhausted"));
+        verify(rabbitTemplate).send(eq(RabbitConfiguration.REGISTRAR_DEAD_LETTER_QUEUE), eq(failing));
+        verify(rabbitTemplate, never()).send(RabbitConfiguration.REGISTRAR_DEAD_LETTER_QUEUE, ok);
+    }
+
+    private void recordApplied() {
+        doAnswer(invocation -> {
+            RegistrarMessageDTO m = invocation.getArgument(0);
+            String name = m.payload() instanceof UserPasswordDTO u ? " " + u.name() : "";
+            applied.add(m.type() + " " + m.key() + name);
+            return null;
+        }).when(registrar).apply(any());
+    }
+
+    private static String user(int id, String name) {
+        return "{\"id\":" + id + ",\"name\":\"" + name + "\",\"email\":\"" + name + "@csumb.edu\"," +
+                "\"type\":\"STUDENT\",\"password\":\"x\"}";
+    }
+
+    private static Message text(String body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(RegistrarMessageCodec.TEXT);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,80 @@
+package com.cst438.service;
+
+import com.cst438.dto.CourseDTO;
+import com.cst438.dto.RegistrarMessageDTO;
+import com.cst438.dto.SectionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// encode and decode of registrar messages in each encoding
+public class RegistrarMessageCodecTest {
+
+    private static final SectionDTO SECTION = new SectionDTO(42, 2025, "Fall", "cst438", "Software Engineering", 1,
+            "90", "B104", "M W 10:00-11:50", "ted", "ted@csumb.edu");
+
+    private final RegistrarMessageCodec codec = new RegistrarMessageCodec();
+
+    @Test
+    public void roundTripInEachEncoding() {
+        for (String contentType : List.of(RegistrarMessageCodec.TEXT, RegistrarMessageCodec.JSON, RegistrarMessageCodec.CBOR)) {
+            Message message = codec.encode("addSection", SECTION, contentType);
+            assertEquals(contentType, message.getMessageProperties().getContentType());
+
+            RegistrarMessageDTO decoded = codec.decode(message);
+            assertEquals("addSection", decoded.type(), contentType);
+            assertEquals("42", decoded.key(), contentType);
+            assertEquals(RegistrarMessageCodec.VERSION, decoded.version(), contentType);
+            assertEquals(SECTION, decoded.payload(), contentType);
+        }
+    }
+
+    @Test
+    public void storedJsonEncodesLikeThePayload() throws Exception {
+        CourseDTO course = new CourseDTO("cst438", "Software Engineering", 4);
+        String json = codec.writePayload(course);
+        for (String contentType : List.of(RegistrarMessageCodec.TEXT, RegistrarMessageCodec.JSON, RegistrarMessageCodec.CBOR)) {
+            Message fromObject = codec.encode("updateCourse", course, contentType);
+            Message fromJson = codec.encodeJson("updateCourse", json, contentType);
+            assertArrayEquals(fromObject.getBody(), fromJson.getBody(), contentType);
+            assertEquals(course, codec.decode(fromJson).payload(), contentType);
+        }
+    }
+
+    @Test
+    public void contentTypeSelection() throws Exception {
+        // an unknown encoding falls back to the legacy text format
+        Message text = codec.encode("addSection", SECTION, "application/xml");
+        assertEquals(RegistrarMessageCodec.TEXT, text.getMessageProperties().getContentType());
+        assertEquals("UTF-8", text.getMessageProperties().getContentEncoding());
+        assertTrue(new String(text.getBody(), StandardCharsets.UTF_8).startsWith("addSection {"));
+
+        Message json = codec.encode("addSection", SECTION, RegistrarMessageCodec.JSON);
+        assertEquals("UTF-8", json.getMessageProperties().getContentEncoding());
+        assertEquals("addSection", new ObjectMapper().readTree(json.getBody()).path("type").asText());
+
+        // cbor is binary, it has no character encoding
+        Message cbor = codec.encode("addSection", SECTION, RegistrarMessageCodec.CBOR);
+        assertNull(cbor.getMessageProperties().getContentEncoding());
+        assertTrue(cbor.getBody().length < json.getBody().length);
+    }
+
+    @Test
+    public void deleteMessageKeyIsThePayload() {
+        RegistrarMessageDTO decoded = codec.decode("deleteSection 42".getBytes(StandardCharsets.UTF_8),
+                RegistrarMessageCodec.TEXT);
+        assertEquals("deleteSection", decoded.type());
+        assertEquals("42", decoded.key());
+    }
+
+    @Test
+    public void newerEnvelopeVersionIsRejected() {
+        byte[] body = "{\"type\":\"addSection\",\"version\":2,\"payload\":{}}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(body, RegistrarMessageCodec.JSON));
+    }
+}